@@ -0,0 +1,239 @@
+package org.example.insuredperson.Config;
+
+import org.example.insuredperson.Service.ContentHash;
+import org.example.insuredperson.Service.DocumentStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+//One-off data migrations for schema changes that ddl-auto=update cannot express; each step is idempotent
+@Component
+@ConditionalOnProperty(name = "app.migration.enabled", havingValue = "true", matchIfMissing = true)
+public class DataMigrationRunner implements ApplicationRunner {
+
+    // the out-of-the-box storage-dir: local disk of one instance, gone on a Cloud Run restart
+    private static final Path DEFAULT_STORAGE_DIR = Paths.get("./data/documents").toAbsolutePath().normalize();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final DocumentStorage documentStorage;
+    private final Path storageDir;
+    private final boolean sharedStorage;
+    private final boolean purgeDocumentBlobs;
+    private final boolean dropProfilePictureColumn;
+
+    public DataMigrationRunner(JdbcTemplate jdbcTemplate, DataSource dataSource, DocumentStorage documentStorage,
+                               @Value("${app.documents.storage-dir}") String storageDir,
+                               @Value("${app.documents.shared-storage:false}") boolean sharedStorage,
+                               @Value("${app.migration.purge-document-blobs:false}") boolean purgeDocumentBlobs,
+                               @Value("${app.migration.drop-profile-picture-column:false}") boolean dropProfilePictureColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.documentStorage = documentStorage;
+        this.storageDir = Paths.get(storageDir).toAbsolutePath().normalize();
+        this.sharedStorage = sharedStorage;
+        this.purgeDocumentBlobs = purgeDocumentBlobs;
+        this.dropProfilePictureColumn = dropProfilePictureColumn;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        copyProfilePicturesOutOfInsuredPerson();
+        if (dropProfilePictureColumn) {
+            dropProfilePictureColumn();
+        }
+        backfillProfilePictureChecksums();
+        backfillDocumentSizes();
+        if (sharedStorage) {
+            copyDocumentContentToStorage();
+        }
+        if (purgeDocumentBlobs) {
+            purgeVerifiedDocumentBlobs();
+        }
+    }
+
+    // pictures stored before the ETag columns existed get their size and SHA-256 computed once
+    private void backfillProfilePictureChecksums() {
+        List<String> policyNumbers = jdbcTemplate.queryForList(
+                "SELECT policy_number FROM profile_picture WHERE checksum IS NULL AND data IS NOT NULL", String.class);
+        for (String policyNumber : policyNumbers) {
+            String checksum = jdbcTemplate.query("SELECT data FROM profile_picture WHERE policy_number = ?",
+                    rs -> {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        try (InputStream content = rs.getBinaryStream(1)) {
+                            return content != null ? ContentHash.sha256Hex(content) : null;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Failed to hash profile picture " + policyNumber, e);
+                        }
+                    }, policyNumber);
+            jdbcTemplate.update("UPDATE profile_picture SET checksum = ?, size = OCTET_LENGTH(data) WHERE policy_number = ?",
+                    checksum, policyNumber);
+        }
+        if (!policyNumbers.isEmpty()) {
+            System.out.println("Backfilled checksum for " + policyNumbers.size() + " profile pictures");
+        }
+    }
+
+    // document.data (LOB) → DocumentStorage, one row at a time; only once the store is shared, since a fresh instance's
+    // local store is always empty and would re-read every BLOB on each cold start. Until then downloads are served
+    // from the BLOB. The BLOB stays, and DocumentDownloadService falls back to it whenever the stored file is missing
+    private void copyDocumentContentToStorage() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT id, checksum FROM document WHERE data IS NOT NULL");
+        int copied = 0;
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("id")).longValue();
+            String checksum = (String) row.get("checksum");
+            if (checksum != null && documentStorage.exists(checksum)) {
+                continue;
+            }
+            DocumentStorage.StoredContent stored = jdbcTemplate.query("SELECT data FROM document WHERE id = ?",
+                    rs -> {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        try (InputStream content = rs.getBinaryStream(1)) {
+                            return content != null ? documentStorage.store(content) : null;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Failed to copy content of document " + id, e);
+                        }
+                    }, id);
+            if (stored != null) {
+                jdbcTemplate.update("UPDATE document SET checksum = ?, file_size = ? WHERE id = ?",
+                        stored.getContentHash(), stored.getSize(), id);
+                copied++;
+            }
+        }
+        if (copied > 0) {
+            System.out.println("Copied content of " + copied + " documents to document storage");
+        }
+    }
+
+    // Opt-in (app.migration.purge-document-blobs): clears document.data once the stored file has been re-read and its
+    // SHA-256 and size match the row. Only allowed on a store every instance shares and that outlives them
+    private void purgeVerifiedDocumentBlobs() throws IOException {
+        if (!sharedStorage || storageDir.equals(DEFAULT_STORAGE_DIR)) {
+            throw new IllegalStateException("Refusing to purge document BLOBs: " + storageDir
+                    + " is not declared as shared storage (set app.documents.storage-dir to a mounted volume"
+                    + " and app.documents.shared-storage=true)");
+        }
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, checksum, OCTET_LENGTH(data) AS size FROM document WHERE data IS NOT NULL AND checksum IS NOT NULL");
+        int purged = 0;
+        for (Map<String, Object> row : rows) {
+            Long id = ((Number) row.get("id")).longValue();
+            String checksum = (String) row.get("checksum");
+            long size = ((Number) row.get("size")).longValue();
+            if (!documentStorage.exists(checksum) || documentStorage.size(checksum) != size
+                    || !checksum.equals(hashStoredContent(checksum, size))) {
+                System.out.println("Keeping BLOB of document " + id + ": stored copy missing or does not match");
+                continue;
+            }
+            purged += jdbcTemplate.update("UPDATE document SET data = NULL WHERE id = ? AND checksum = ?", id, checksum);
+        }
+        if (purged > 0) {
+            System.out.println("Purged BLOBs of " + purged + " documents verified in document storage");
+        }
+    }
+
+    private String hashStoredContent(String contentHash, long size) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        try (DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            documentStorage.transferTo(contentHash, 0, size, Channels.newChannel(out));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // documents uploaded before file_size existed get it computed once, in SQL, without reading the bytes into the app
+    private void backfillDocumentSizes() {
+        int updated = jdbcTemplate.update(
+                "UPDATE document SET file_size = OCTET_LENGTH(data) WHERE file_size IS NULL AND data IS NOT NULL");
+        if (updated > 0) {
+            System.out.println("Backfilled file_size for " + updated + " documents");
+        }
+    }
+
+    // insured_person.profile_picture (LONGBLOB) → profile_picture table. The old column is left in place;
+    // several instances may run this at once, and the loser of the race just finds the rows already there
+    private void copyProfilePicturesOutOfInsuredPerson() throws SQLException {
+        if (!columnExists("insured_person", "profile_picture")) {
+            return;
+        }
+        try {
+            int copied = jdbcTemplate.update(
+                    "INSERT INTO profile_picture (policy_number, data) " +
+                    "SELECT p.policy_number, p.profile_picture FROM insured_person p " +
+                    "WHERE p.profile_picture IS NOT NULL " +
+                    "AND NOT EXISTS (SELECT 1 FROM profile_picture pp WHERE pp.policy_number = p.policy_number)");
+            if (copied > 0) {
+                System.out.println("Copied " + copied + " profile pictures to the profile_picture table");
+            }
+        } catch (DuplicateKeyException e) {
+            System.out.println("Profile pictures are being copied by another instance: " + e.getMessage());
+        }
+    }
+
+    // Opt-in (app.migration.drop-profile-picture-column), meant to be enabled for a single deployment once the copy
+    // has run: the column is only dropped when every non-null picture in it has a picture in profile_picture
+    private void dropProfilePictureColumn() throws SQLException {
+        if (!columnExists("insured_person", "profile_picture")) {
+            return;
+        }
+        Long missing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM insured_person p WHERE p.profile_picture IS NOT NULL " +
+                "AND NOT EXISTS (SELECT 1 FROM profile_picture pp WHERE pp.policy_number = p.policy_number AND pp.data IS NOT NULL)",
+                Long.class);
+        if (missing == null || missing > 0) {
+            throw new IllegalStateException("Refusing to drop insured_person.profile_picture: " + missing
+                    + " pictures have not been copied to profile_picture");
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE insured_person DROP COLUMN profile_picture");
+            System.out.println("Dropped insured_person.profile_picture after verifying all pictures were copied");
+        } catch (DataAccessException e) {
+            if (columnExists("insured_person", "profile_picture")) {
+                throw e;
+            }
+            // another instance dropped it first
+        }
+    }
+
+    private boolean columnExists(String table, String column) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // MySQL reports lower-case identifiers, H2 upper-case
+            try (ResultSet lower = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                if (lower.next()) {
+                    return true;
+                }
+            }
+            try (ResultSet upper = metaData.getColumns(connection.getCatalog(), null, table.toUpperCase(), column.toUpperCase())) {
+                return upper.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.insuredperson.Config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//Hit/miss/put counters and a hit ratio per second-level cache region, from Hibernate's statistics
+//(hibernate.generate_statistics must be on)
+@Component
+public class HibernateCacheMetrics {
+
+    static final List<String> REGIONS = List.of("insuredPerson", "insuredPersonByUserId");
+
+    public HibernateCacheMetrics(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String region : REGIONS) {
+            FunctionCounter.builder("hibernate.l2.hits", statistics, s -> regionStats(s, region).getHitCount())
+                    .tag("region", region).register(meterRegistry);
+            FunctionCounter.builder("hibernate.l2.misses", statistics, s -> regionStats(s, region).getMissCount())
+                    .tag("region", region).register(meterRegistry);
+            FunctionCounter.builder("hibernate.l2.puts", statistics, s -> regionStats(s, region).getPutCount())
+                    .tag("region", region).register(meterRegistry);
+            Gauge.builder("hibernate.l2.hit.ratio", statistics, s -> hitRatio(regionStats(s, region)))
+                    .tag("region", region).register(meterRegistry);
+        }
+    }
+
+    private static CacheRegionStatistics regionStats(Statistics statistics, String region) {
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+
+    private static double hitRatio(CacheRegionStatistics stats) {
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) stats.getHitCount() / lookups;
+    }
+}
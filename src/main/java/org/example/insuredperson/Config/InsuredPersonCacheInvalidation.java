@@ -0,0 +1,39 @@
+package org.example.insuredperson.Config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Service.CacheInvalidationBus;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+//Evicts InsuredPerson entries from this instance's second-level cache when another instance changed them.
+//A renamed or deleted person's old userId arrives on its own channel, and only that natural id is evicted
+@Component
+public class InsuredPersonCacheInvalidation {
+
+    public InsuredPersonCacheInvalidation(CacheInvalidationBus bus, EntityManagerFactory entityManagerFactory) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Cache cache = sessionFactory.getCache();
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(InsuredPerson.class);
+        NaturalIdDataAccess naturalIds = persister.getNaturalIdCacheAccessStrategy();
+
+        bus.subscribe(CacheInvalidationBus.INSURED_PERSON, policyNumbers -> {
+            for (String policyNumber : policyNumbers) {
+                cache.evictEntityData(InsuredPerson.class, policyNumber);
+            }
+        });
+        bus.subscribe(CacheInvalidationBus.INSURED_PERSON_USER_ID, userIds -> {
+            // cache keys are built against a session (for the tenant); opening one does not touch the database
+            try (Session session = sessionFactory.openSession()) {
+                for (String userId : userIds) {
+                    naturalIds.evict(naturalIds.generateCacheKey(userId, persister, (SharedSessionContractImplementor) session));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.insuredperson.Controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import org.example.insuredperson.DTO.APIResponse;
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.DTO.UploadSessionRequest;
+import org.example.insuredperson.DTO.UploadSessionResponse;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Security.JwtPrincipal;
+import org.example.insuredperson.Service.ChunkedUploadService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+//Resumable document uploads: create a session, PUT chunks at the returned offset, then complete
+@CrossOrigin(origins = "https://insuredperson-api-ui-458668609912.us-central1.run.app")
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("api/insuredpersons/uploads")
+public class DocumentUploadController {
+
+    private final ChunkedUploadService uploadService;
+
+    public DocumentUploadController(ChunkedUploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @Operation(summary = "Start a resumable document upload for a policy")
+    @PostMapping("/{policyNumber}")
+    public ResponseEntity<APIResponse<UploadSessionResponse>> createUpload(
+            @PathVariable String policyNumber,
+            @RequestBody UploadSessionRequest request,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        checkUserOrAdminForPolicy(principal, policyNumber);
+        UploadSessionResponse session = uploadService.createSession(policyNumber, request);
+        return ResponseEntity.created(URI.create("/api/insuredpersons/uploads/" + session.getUploadId()))
+                .body(new APIResponse<>(201, "Upload session created", session));
+    }
+
+    @Operation(summary = "Append a chunk; offset must equal the bytes received so far")
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<APIResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            @AuthenticationPrincipal JwtPrincipal principal,
+            InputStream body) {
+        checkUserOrAdminForPolicy(principal, uploadService.getSession(uploadId).getPolicyNumber());
+        return ResponseEntity.ok(new APIResponse<>(200, "Chunk stored", uploadService.appendChunk(uploadId, offset, body)));
+    }
+
+    @Operation(summary = "Upload progress, used to find the offset to resume from")
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<APIResponse<UploadSessionResponse>> getUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal JwtPrincipal principal) {
+        checkUserOrAdminForPolicy(principal, uploadService.getSession(uploadId).getPolicyNumber());
+        return ResponseEntity.ok(new APIResponse<>(200, "Upload session retrieved", uploadService.status(uploadId)));
+    }
+
+    @Operation(summary = "Verify the checksum and attach the uploaded file to the policy as a document")
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<APIResponse<DocumentDTO>> completeUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        checkUserOrAdminForPolicy(principal, uploadService.getSession(uploadId).getPolicyNumber());
+        DocumentDTO document = uploadService.complete(uploadId);
+        return ResponseEntity.status(201).body(new APIResponse<>(201, "Document uploaded successfully", document));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<APIResponse<Void>> abortUpload(
+            @PathVariable String uploadId,
+            @AuthenticationPrincipal JwtPrincipal principal) throws IOException {
+        checkUserOrAdminForPolicy(principal, uploadService.getSession(uploadId).getPolicyNumber());
+        uploadService.abort(uploadId);
+        return ResponseEntity.ok(new APIResponse<>(200, "Upload aborted", null));
+    }
+
+    private void checkUserOrAdminForPolicy(JwtPrincipal principal, String policyNumber) {
+        if (principal.isAdmin()) {
+            return;
+        }
+        if (principal.isUser() && policyNumber.equals(principal.getPolicyNumber())) {
+            return;
+        }
+        throw new CustomExceptions.UnauthorizedException("Access denied! You can only upload documents to your own policy.");
+    }
+}
@@ -2,23 +2,46 @@ package org.example.insuredperson.Controller;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.example.insuredperson.DTO.*;
 import org.example.insuredperson.Entity.Document;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.ProfilePicture;
 import org.example.insuredperson.Exception.CustomExceptions;
 import org.example.insuredperson.Repo.DocumentRepository;
 import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Security.JwtPrincipal;
+import org.example.insuredperson.Service.BulkImportService;
+import org.example.insuredperson.Service.ContentHash;
+import org.example.insuredperson.Service.DocumentDownloadService;
+import org.example.insuredperson.Service.InsuredPersonExportService;
+import org.example.insuredperson.Service.InsuredPersonJsonCache;
+import org.example.insuredperson.Service.InsuredPersonSearchService;
 import org.example.insuredperson.Service.InsuredPersonService;
 import org.example.insuredperson.Service.JwtService;
+import org.example.insuredperson.Service.OffHeapByteCache;
+import org.example.insuredperson.Service.RateLimiter;
+import org.example.insuredperson.Service.RefreshTokenService;
+import org.example.insuredperson.Service.TokenRevocationService;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Documented;
+import java.time.ZoneId;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,12 +56,30 @@ public class InsuredPersonController {
     public final JwtService jwtService;
     public final InsuredPersonRepository repository;
     private final DocumentRepository documentRepository;
-
-    public InsuredPersonController(InsuredPersonService insuredPersonService, JwtService jwtService, InsuredPersonRepository repository, DocumentRepository documentRepository) {
+    private final InsuredPersonSearchService searchService;
+    private final InsuredPersonExportService exportService;
+    private final BulkImportService bulkImportService;
+    private final DocumentDownloadService documentDownloadService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RateLimiter rateLimiter;
+    private final InsuredPersonJsonCache responseCache;
+    private final OffHeapByteCache pictureCache;
+
+    public InsuredPersonController(InsuredPersonService insuredPersonService, JwtService jwtService, InsuredPersonRepository repository, DocumentRepository documentRepository, InsuredPersonSearchService searchService, InsuredPersonExportService exportService, BulkImportService bulkImportService, DocumentDownloadService documentDownloadService, RefreshTokenService refreshTokenService, TokenRevocationService tokenRevocationService, RateLimiter rateLimiter, InsuredPersonJsonCache responseCache, OffHeapByteCache pictureCache) {
         this.insuredPersonService = insuredPersonService;
         this.jwtService = jwtService;
         this.repository = repository;
         this.documentRepository = documentRepository;
+        this.searchService = searchService;
+        this.exportService = exportService;
+        this.bulkImportService = bulkImportService;
+        this.documentDownloadService = documentDownloadService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.rateLimiter = rateLimiter;
+        this.responseCache = responseCache;
+        this.pictureCache = pictureCache;
     }
 
     // Create new InsuredPerson
@@ -68,6 +109,21 @@ public class InsuredPersonController {
                 .body(new APIResponse<>(201, "InsuredPerson created successfully", response));
     }
 
+    @Operation(summary = "Bulk register InsuredPersons from a CSV or NDJSON stream")
+    @PostMapping(value = "/import", consumes = {BulkImportService.FORMAT_CSV, BulkImportService.FORMAT_NDJSON})
+    public ResponseEntity<APIResponse<BulkImportResult>> bulkImport(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+
+        checkAdmin(principal);
+
+        BulkImportResult result = bulkImportService.importRows(contentType, body);
+        return ResponseEntity.ok(new APIResponse<>(200,
+                "Import finished: " + result.getCreated() + " created, " + result.getRejected() + " rejected",
+                result));
+    }
+
     @PutMapping(value = "/profile-picture/{policyNumber}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<APIResponse<String>> uploadProfilePicture(
             @PathVariable String policyNumber,
@@ -84,82 +140,158 @@ public class InsuredPersonController {
     }
 
     @GetMapping("/profile-picture/{policyNumber}")
-    public ResponseEntity<byte[]> getProfilePicture(@PathVariable String policyNumber) {
-        InsuredPerson person = repository.findById(policyNumber)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<Resource> getProfilePicture(@PathVariable String policyNumber, WebRequest webRequest,
+                                                      HttpServletResponse response) throws IOException {
+        ProfilePictureInfo info = insuredPersonService.getProfilePictureInfo(policyNumber);
 
-        byte[] image = person.getProfilePicture();
-        if (image == null || image.length == 0) {
+        if (info == null || info.getSize() == null || info.getSize() == 0) {
             return ResponseEntity.notFound().build();
         }
 
+        // answer revalidations from the metadata row alone; the image itself is only read on a miss
+        String etag = info.getChecksum() != null ? ContentHash.etag(info.getChecksum()) : null;
+        long lastModified = info.getUpdatedAt() != null
+                ? info.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        // full-body hits are copied from off-heap memory straight into the response; Range requests take the Resource path
+        if (webRequest.getHeader(HttpHeaders.RANGE) == null) {
+            try (OffHeapByteCache.Handle cached = pictureCache.acquire(policyNumber, info.getChecksum())) {
+                if (cached != null) {
+                    response.setContentType(cached.getContentType());
+                    response.setContentLength(cached.getLength());
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+                    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    cached.writeTo(response);
+                    return null;
+                }
+            }
+        }
+
+        ProfilePicture picture = insuredPersonService.getProfilePicture(policyNumber);
+        if (picture == null || picture.getData() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        MediaType contentType = picture.getContentType() != null
+                ? MediaType.parseMediaType(picture.getContentType())
+                : MediaType.IMAGE_JPEG;
+        pictureCache.put(policyNumber, picture.getChecksum(), contentType.toString(), picture.getData());
+        // a Resource body lets Spring MVC serve Range requests as 206
         return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(image);
+                .contentType(contentType)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(new ByteArrayResource(picture.getData()));
     }
 
     @GetMapping("/documents/{policyNumber}")
     public ResponseEntity<List<DocumentDTO>> getDocumentsByPolicyNumber(@PathVariable String policyNumber) {
-        List<Document> documents = documentRepository.findByInsuredPersonPolicyNumber(policyNumber);
-        System.out.println(documents);
+        List<DocumentDTO> dtos = documentRepository.findMetadataByPolicyNumber(policyNumber);
+        if (dtos.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(dtos);
+    }
+
+    @GetMapping("/documents/{policyNumber}/bundle")
+    public ResponseEntity<StreamingResponseBody> downloadDocumentBundle(@PathVariable String policyNumber,
+                                                                        @AuthenticationPrincipal JwtPrincipal principal) {
+        checkUserOrAdminForPolicy(principal, policyNumber);
+        List<DocumentDTO> documents = documentRepository.findMetadataByPolicyNumber(policyNumber);
         if (documents.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
+        documentDownloadService.requireBundleContent(documents);
 
-        List<DocumentDTO> dtos = documents.stream()
-                .map(doc -> new DocumentDTO(
-                        doc.getFileName(),
-                        doc.getFileType(),
-                        doc.getData() != null ? doc.getData().length : 0,
-                        doc.getInsuredPerson().getPolicyNumber(),
-                        doc.getInsuredPerson().getFirstName(),
-                        doc.getInsuredPerson().getLastName()
-                ))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        StreamingResponseBody body = out -> documentDownloadService.writeBundle(documents, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + policyNumber + "-documents.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
     }
 
     @GetMapping("/documents/download/{policyNumber}/{fileName:.+}")
-    public ResponseEntity<byte[]> downloadDocument(
+    public void downloadDocument(
             @PathVariable String policyNumber,
-            @PathVariable String fileName) {
+            @PathVariable String fileName,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
-        Optional<Document> optionalDoc = documentRepository.findByInsuredPersonPolicyNumberAndFileName(policyNumber, fileName);
+        Optional<Document> optionalDoc = documentDownloadService.findDocument(policyNumber, fileName);
 
         if (optionalDoc.isEmpty()) {
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
 
-        Document doc = optionalDoc.get();
-        byte[] fileData = doc.getData();
-
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + doc.getFileName() + "\"")
-                .header(HttpHeaders.CONTENT_TYPE, doc.getFileType()) // e.g., application/pdf
-                .body(fileData);
+        documentDownloadService.send(optionalDoc.get(), request, response);
     }
 
     @PostMapping("/login")
     public ResponseEntity<APIResponse<Map<String, Object>>> login(@RequestBody LoginRequest loginRequest) {
+        // per-IP limits are applied by RateLimitFilter; this one stops password guessing spread over many IPs
+        rateLimiter.check(RateLimiter.LOGIN_USER, loginRequest.getUserId());
         InsuredPerson user = insuredPersonService.login(loginRequest);
         String token = jwtService.generateToken(user);
         Map<String,Object> responseData = new HashMap<>();
         responseData.put("user", mapToResponse(user));
         responseData.put("token", token);
+        responseData.put("refreshToken", refreshTokenService.issue(user.getPolicyNumber()));
         return ResponseEntity.ok(new APIResponse<>(
                 200,
                 "Yes, you are in! Here is your policy number: " + user.getPolicyNumber(),
                 responseData)
         );
     }
+
+    // New access token from a refresh token: one indexed lookup instead of a BCrypt check
+    @PostMapping("/token/refresh")
+    public ResponseEntity<APIResponse<Map<String, Object>>> refreshToken(@RequestBody RefreshTokenRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.getRefreshToken());
+        InsuredPerson user = insuredPersonService.findById(rotation.getPolicyNumber());
+        Map<String,Object> responseData = new HashMap<>();
+        responseData.put("token", jwtService.generateToken(user));
+        responseData.put("refreshToken", rotation.getRefreshToken());
+        return ResponseEntity.ok(new APIResponse<>(200, "Token refreshed", responseData));
+    }
+    // Revokes the presented access token and, when given, the refresh token of the same login
+    @PostMapping("/logout")
+    public ResponseEntity<APIResponse<Void>> logout(@AuthenticationPrincipal JwtPrincipal principal,
+                                                    @RequestBody(required = false) RefreshTokenRequest request) throws IOException {
+        tokenRevocationService.revoke(principal.getTokenId(), principal.getExpiresAt());
+        if (request != null) {
+            refreshTokenService.revoke(request.getRefreshToken());
+        }
+        return ResponseEntity.ok(new APIResponse<>(200, "Logged out successfully", null));
+    }
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> findAll(
-            @RequestHeader("Authorization") String auth,
+            @AuthenticationPrincipal JwtPrincipal principal,
             @RequestParam(defaultValue = "0") int offSet,
-            @RequestParam(defaultValue = "3") int pageSize) {
+            @RequestParam(defaultValue = "3") int pageSize,
+            @RequestParam(required = false) String cursor) {
+
+        checkAdmin(principal);
+
+        // Opt-in keyset mode: pass cursor (empty for the first page), then the returned nextCursor
+        if (cursor != null) {
+            CursorPage<InsuredPerson> slice = insuredPersonService.getInsuredListAfter(cursor, pageSize);
+            List<InsuredPersonResponse> responseList = slice.getContent().stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.toList());
 
-        String token = auth.substring(7);
-        checkAdmin(token);
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", 200);
+            response.put("message", "All InsuredPersons retrieved successfully");
+            response.put("data", responseList);
+            response.put("hasNext", slice.isHasNext());
+            response.put("nextCursor", slice.getNextCursor());
+            response.put("pageSize", pageSize);
+            return ResponseEntity.ok(response);
+        }
 
         Page<InsuredPerson> allEntries = insuredPersonService.getAllInsuredList(offSet, pageSize);
         List<InsuredPersonResponse> responseList = allEntries.stream()
@@ -179,19 +311,36 @@ public class InsuredPersonController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Stream every InsuredPerson as NDJSON or CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAll(
+            @AuthenticationPrincipal JwtPrincipal principal,
+            @RequestParam(defaultValue = InsuredPersonExportService.FORMAT_NDJSON) String format) {
+
+        checkAdmin(principal);
+        InsuredPersonExportService.validateFormat(format);
+
+        StreamingResponseBody body = out -> exportService.export(format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"insured-persons." + format.toLowerCase() + "\"")
+                .contentType(MediaType.parseMediaType(InsuredPersonExportService.contentType(format)))
+                .body(body);
+    }
+
     @GetMapping("/policySearch")
     public ResponseEntity<APIResponse<List<InsuredPersonResponse>>> searchPolicies(
             @RequestParam String query,
-            @RequestHeader("Authorization") String auth) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
-        String token = auth.substring(7);
 
-        List<InsuredPerson> persons = new ArrayList<>();
+        // One classified query replaces the old field-by-field fallback cascade; first match still wins
+        InsuredPersonSearchService.SearchResult result = searchService.search(query);
 
-        // Case 1: Try as Policy Number first → User can access own, Admin can access anyone
-        try {
-            InsuredPerson entity = insuredPersonService.findById(query);
-            checkUserOrAdminForPolicy(token, entity);
+        // Policy number hit → User can access own, Admin can access anyone
+        if (result.isPolicyMatch()) {
+            InsuredPerson entity = result.getPersons().get(0);
+            checkUserOrAdminForPolicy(principal, entity);
 
             return ResponseEntity.ok(
                     new APIResponse<>(
@@ -200,59 +349,51 @@ public class InsuredPersonController {
                             List.of(mapToResponse(entity))
                     )
             );
-        } catch (CustomExceptions.ResourceNotFoundException e) {
-            // Not a policy number → continue to search by other fields (Admin only)
         }
 
         // Only Admin can search by other fields
-        checkAdmin(token);
-
-        try {
-            // Try each field one by one; first match wins
-            try { persons = insuredPersonService.findByFirstName(query); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-            if (persons.isEmpty()) try { persons = insuredPersonService.findByLastName(query); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-            if (persons.isEmpty()) try { persons = insuredPersonService.findByFirstCharOfFirstName(query); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-            if (persons.isEmpty()) try { persons = insuredPersonService.findByEmail(query); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-            if (persons.isEmpty()) try { persons = insuredPersonService.findByPhoneNumber(query); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-            if (persons.isEmpty()) try { persons = Collections.singletonList(insuredPersonService.findByUserId(query)); } catch (CustomExceptions.ResourceNotFoundException ignored) {}
-
-            if (persons.isEmpty()) {
-                throw new CustomExceptions.ResourceNotFoundException("No InsuredPerson found with query: " + query);
-            }
+        checkAdmin(principal);
 
-            List<InsuredPersonResponse> responseList = persons.stream()
-                    .map(this::mapToResponse)
-                    .collect(Collectors.toList());
-
-            return ResponseEntity.ok(
-                    new APIResponse<>(
-                            200,
-                            "Records retrieved successfully",
-                            responseList
-                    )
-            );
-        } catch (CustomExceptions.ResourceNotFoundException e) {
-            throw e; // propagate original exception
+        if (result.isEmpty()) {
+            throw new CustomExceptions.ResourceNotFoundException("No InsuredPerson found with query: " + query);
         }
-    }
 
-    @GetMapping({"/{policyNumber}"})
-    public ResponseEntity<APIResponse<InsuredPersonResponse>> findById(
-                        @PathVariable String policyNumber, @RequestHeader("Authorization") String auth) {
+        List<InsuredPersonResponse> responseList = result.getPersons().stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
 
-        String token = auth.substring(7);
-        InsuredPerson entity = insuredPersonService.findById(policyNumber);
-        checkUserOrAdminForPolicy(token, entity);
         return ResponseEntity.ok(
-                new APIResponse<>(200, "InsuredPerson retrieved successfully", mapToResponse(entity))
+                new APIResponse<>(
+                        200,
+                        "Records retrieved successfully",
+                        responseList
+                )
         );
     }
 
+    // Body is the APIResponse<InsuredPersonResponse> JSON, served from InsuredPersonJsonCache when the person hasn't changed
+    @GetMapping(value = {"/{policyNumber}"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> findById(
+                        @PathVariable String policyNumber, @AuthenticationPrincipal JwtPrincipal principal) {
+
+        byte[] json = responseCache.get(policyNumber);
+        if (json != null) {
+            checkUserOrAdminForPolicy(principal, policyNumber);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
+
+        long version = responseCache.version();
+        InsuredPerson entity = insuredPersonService.findById(policyNumber, version);
+        checkUserOrAdminForPolicy(principal, entity);
+        json = responseCache.put(entity.getPolicyNumber(), version,
+                new APIResponse<>(200, "InsuredPerson retrieved successfully", mapToResponse(entity)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+    }
+
     @GetMapping("/findByFirstName")
     public ResponseEntity<APIResponse<List<InsuredPersonResponse>>> findByFirstName(@RequestParam String firstName,
-                                                                                    @RequestHeader("Authorization") String auth) {
-        String token = auth.substring(7);
-        checkAdmin(token);
+                                                                                    @AuthenticationPrincipal JwtPrincipal principal) {
+        checkAdmin(principal);
         List<InsuredPerson> persons = insuredPersonService.findByFirstName(firstName);
         List<InsuredPersonResponse> responseList = persons.stream()
                                                     .map(this::mapToResponse)
@@ -267,9 +408,8 @@ public class InsuredPersonController {
 
     @GetMapping("/findByLastName")
     public ResponseEntity<APIResponse<List<InsuredPersonResponse>>> findByLastName(@RequestParam String lastName,
-                                                                                   @RequestHeader("Authorization") String auth) {
-        String token = auth.substring(7);
-        checkAdmin(token);
+                                                                                   @AuthenticationPrincipal JwtPrincipal principal) {
+        checkAdmin(principal);
         List<InsuredPerson> persons = insuredPersonService.findByLastName(lastName);
         List<InsuredPersonResponse> responseList = persons.stream()
                                                     .map(this::mapToResponse)
@@ -285,10 +425,9 @@ public class InsuredPersonController {
     @GetMapping("/findByFirstChar")
     public ResponseEntity<APIResponse<List<InsuredPersonResponse>>> findByInsuredPersonFirstNameStartsWith(
             @RequestParam String firstChar,
-            @RequestHeader("Authorization") String auth) {
+            @AuthenticationPrincipal JwtPrincipal principal) {
 
-        String token = auth.substring(7);
-        checkAdmin(token);
+        checkAdmin(principal);
 
         if (firstChar == null || firstChar.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(new APIResponse<>(
@@ -315,10 +454,8 @@ public class InsuredPersonController {
 
     @PatchMapping("/{policyNumber}")
     public ResponseEntity<APIResponse<InsuredPersonResponse>> updateInsuredPerson(@PathVariable String policyNumber,
-            @RequestBody InsuredPersonRequest requestDto,  @RequestHeader("Authorization") String auth) {
-        String token = auth.substring(7);
-        System.out.println(token);
-        checkAdmin(token);
+            @RequestBody InsuredPersonRequest requestDto,  @AuthenticationPrincipal JwtPrincipal principal) {
+        checkAdmin(principal);
         requestDto.setPolicyNumber(policyNumber);
         InsuredPerson updatedPerson = insuredPersonService.updateInsuredPerson(policyNumber,requestDto);
         InsuredPersonResponse response = mapToResponse(updatedPerson);
@@ -330,14 +467,15 @@ public class InsuredPersonController {
     }
 
     @DeleteMapping("/{policyNumber}")
-    public ResponseEntity<APIResponse<Void>> deleteById(@PathVariable String policyNumber,  @RequestHeader("Authorization") String auth) {
-        String token = auth.substring(7);
-        checkAdmin(token);
+    public ResponseEntity<APIResponse<Void>> deleteById(@PathVariable String policyNumber,  @AuthenticationPrincipal JwtPrincipal principal) {
+        checkAdmin(principal);
         insuredPersonService.deleteInsuredPerson(policyNumber);
+        refreshTokenService.revokeAll(policyNumber);
         return ResponseEntity.ok(new APIResponse<>(200, "InsuredPerson deleted successfully", null));
     }
     @PostMapping("/forgot-password")
     public ResponseEntity<APIResponse<String>> forgotPassword(@RequestBody ForgotPasswordRequest request) {
+        rateLimiter.check(RateLimiter.FORGOT_PASSWORD_USER, request.getUserId());
         String message = insuredPersonService.forgotPassword(request.getUserId()); //, request.getEmail()
 
         return ResponseEntity.ok(
@@ -349,7 +487,9 @@ public class InsuredPersonController {
     @PostMapping("/reset-password")
     public ResponseEntity<APIResponse<InsuredPersonResponse>> resetPassword(@RequestBody ResetPasswordRequest request) {
 //        InsuredPerson updatedUser = insuredPersonService.resetPassword(request.getToken(), request.getNewPassword(), request.getConfirmNewPassword());
+        rateLimiter.check(RateLimiter.RESET_PASSWORD_USER, request.getUserId());
         InsuredPerson updatedUser = insuredPersonService.resetPassword(request);
+        refreshTokenService.revokeAll(updatedUser.getPolicyNumber());
 
         InsuredPersonResponse response = mapToResponse(updatedUser);
         return ResponseEntity.ok(
@@ -360,6 +500,7 @@ public class InsuredPersonController {
     @PutMapping("/change-password")
     public ResponseEntity<APIResponse<InsuredPersonResponse>> changePassword(@RequestBody ChangePasswordRequest request){
         InsuredPerson updateUserPassword = insuredPersonService.updatePassword(request);
+        refreshTokenService.revokeAll(updateUserPassword.getPolicyNumber());
         InsuredPersonResponse response = mapToResponse(updateUserPassword);
         return ResponseEntity.ok(new APIResponse<>(200, "Password changed successfully for the User", response));
     }
@@ -382,29 +523,40 @@ public class InsuredPersonController {
         response.setCountry(entity.getCountry());
         response.setZipcode(entity.getZipcode());
         response.setTypeOfInsurance(entity.getTypeOfInsurance());
+        response.setPreferredLanguage(entity.getPreferredLanguage());
 
         return response;
     }
 
     // --- Helpers ---
-    private void checkAdmin(String token) {
-        String role = jwtService.extractUserRole(token);
-        if (!"Admin".equalsIgnoreCase(role)) {
+    private void checkAdmin(JwtPrincipal principal) {
+        checkAuthenticated(principal);
+        if (!principal.isAdmin()) {
             throw new CustomExceptions.UnauthorizedException("Admins only");
         }
     }
 
 
-    private void checkUserOrAdminForPolicy(String token, InsuredPerson person) {
-        String role = jwtService.extractUserRole(token);
-        String tokenPolicyNumber = jwtService.extractUsername(token); // subject = policyNumber
+    // null on the paths JwtAuthFilter lets through without a token
+    private void checkAuthenticated(JwtPrincipal principal) {
+        if (principal == null) {
+            throw new CustomExceptions.UnauthorizedException("Missing or invalid Authorization header");
+        }
+    }
+
+    private void checkUserOrAdminForPolicy(JwtPrincipal principal, InsuredPerson person) {
+        checkUserOrAdminForPolicy(principal, person.getPolicyNumber());
+    }
 
-        if ("Admin".equalsIgnoreCase(role)) {
+    private void checkUserOrAdminForPolicy(JwtPrincipal principal, String policyNumber) {
+        checkAuthenticated(principal);
+        if (principal.isAdmin()) {
             return; // Admin can access anything
         }
 
-        if ("User".equalsIgnoreCase(role)) {
-            if (!person.getPolicyNumber().equals(tokenPolicyNumber)) {
+        if (principal.isUser()) {
+            // subject = policyNumber
+            if (!policyNumber.equals(principal.getPolicyNumber())) {
                 throw new CustomExceptions.UnauthorizedException("Access denied! You can only view your own details.");
             }
             return;
@@ -0,0 +1,26 @@
+package org.example.insuredperson.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkImportResult {
+    private int total;
+    private int created;
+    private int rejected;
+    private List<BulkImportRowResult> rows = new ArrayList<>();
+
+    public void add(BulkImportRowResult row) {
+        rows.add(row);
+        total++;
+        if (BulkImportRowResult.CREATED.equals(row.getStatus())) {
+            created++;
+        } else {
+            rejected++;
+        }
+    }
+
+    public int getTotal() { return total; }
+    public int getCreated() { return created; }
+    public int getRejected() { return rejected; }
+    public List<BulkImportRowResult> getRows() { return rows; }
+}
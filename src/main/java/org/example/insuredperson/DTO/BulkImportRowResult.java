@@ -0,0 +1,34 @@
+package org.example.insuredperson.DTO;
+
+public class BulkImportRowResult {
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String FAILED = "FAILED";
+
+    private long line;
+    private String policyNumber;
+    private String userId;
+    private String status;
+    private String message;
+
+    public BulkImportRowResult(long line, String policyNumber, String userId, String status, String message) {
+        this.line = line;
+        this.policyNumber = policyNumber;
+        this.userId = userId;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getLine() { return line; }
+    public String getPolicyNumber() { return policyNumber; }
+    public String getUserId() { return userId; }
+    public String getStatus() { return status; }
+    public String getMessage() { return message; }
+
+    public void setLine(long line) { this.line = line; }
+    public void setPolicyNumber(String policyNumber) { this.policyNumber = policyNumber; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public void setStatus(String status) { this.status = status; }
+    public void setMessage(String message) { this.message = message; }
+}
@@ -0,0 +1,23 @@
+package org.example.insuredperson.DTO;
+
+import java.util.List;
+
+public class CursorPage<T> {
+    private List<T> content;
+    private String nextCursor;   // opaque; null when there is nothing after this page
+    private boolean hasNext;
+
+    public CursorPage(List<T> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getContent() { return content; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasNext() { return hasNext; }
+
+    public void setContent(List<T> content) { this.content = content; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    public void setHasNext(boolean hasNext) { this.hasNext = hasNext; }
+}
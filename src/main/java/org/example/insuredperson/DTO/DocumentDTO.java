@@ -1,25 +1,39 @@
 package org.example.insuredperson.DTO;
 
-import org.example.insuredperson.Entity.InsuredPerson;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class DocumentDTO {
+    @JsonIgnore
+    private Long id;            // internal; lets the bundle load a legacy row's content without going by file name
     private String fileName;
     private String fileType;
     private long size;
+    private String checksum;
     private String policyNumber;
     private String firstName;
     private String lastName;
 
-    public DocumentDTO(String fileName, String fileType, long size, String policyNumber, String firstName, String lastName) {
+    public DocumentDTO(String fileName, String fileType, Long size, String checksum, String policyNumber, String firstName, String lastName) {
+        this(null, fileName, fileType, size, checksum, policyNumber, firstName, lastName);
+    }
+
+    // Also the target of DocumentRepository's constructor-expression query
+    public DocumentDTO(Long id, String fileName, String fileType, Long size, String checksum, String policyNumber, String firstName, String lastName) {
+        this.id = id;
         this.fileName = fileName;
         this.fileType = fileType;
-        this.size = size;
+        this.size = size != null ? size : 0;
+        this.checksum = checksum;
         this.policyNumber = policyNumber;
         this.firstName = firstName;
         this.lastName = lastName;
     }
 
     // Getters & setters
+    public Long getId() {
+        return id;
+    }
+
     public String getFileName() {
         return fileName;
     }
@@ -32,6 +46,10 @@ public class DocumentDTO {
         return size;
     }
 
+    public String getChecksum() {
+        return checksum;
+    }
+
     public String getPolicyNumber() {
         return policyNumber;
     }
@@ -23,6 +23,8 @@ public class InsuredPersonRequest {
 
     private InsuranceType typeOfInsurance;
 
+    private String preferredLanguage;
+
     private MultipartFile[] documents;
 
     public String getPolicyNumber() {
@@ -152,6 +154,14 @@ public class InsuredPersonRequest {
         this.country = country;
     }
 
+    public String getPreferredLanguage() {
+        return preferredLanguage;
+    }
+
+    public void setPreferredLanguage(String preferredLanguage) {
+        this.preferredLanguage = preferredLanguage;
+    }
+
     public MultipartFile[] getDocuments() {
         return documents;
     }
@@ -29,6 +29,34 @@ public class InsuredPersonResponse {
 
     private InsuranceType typeOfInsurance;
 
+    private String preferredLanguage;
+
+    public InsuredPersonResponse() {
+    }
+
+    // Used by the export constructor-expression query, which selects only these columns
+    public InsuredPersonResponse(String policyNumber, String firstName, String lastName, Integer age, String userId,
+                                 String role, String email, String phoneNumber, String street, String apartment,
+                                 String city, String zipcode, String state, String country, InsuranceType typeOfInsurance,
+                                 String preferredLanguage) {
+        this.policyNumber = policyNumber;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.age = age;
+        this.userId = userId;
+        this.role = role;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.street = street;
+        this.apartment = apartment;
+        this.city = city;
+        this.zipcode = zipcode;
+        this.state = state;
+        this.country = country;
+        this.typeOfInsurance = typeOfInsurance;
+        this.preferredLanguage = preferredLanguage;
+    }
+
     public String getPolicyNumber() {
         return policyNumber;
     }
@@ -145,5 +173,12 @@ public class InsuredPersonResponse {
     public void setTypeOfInsurance(InsuranceType typeOfInsurance) {
         this.typeOfInsurance = typeOfInsurance;
     }
-}
 
+    public String getPreferredLanguage() {
+        return preferredLanguage;
+    }
+
+    public void setPreferredLanguage(String preferredLanguage) {
+        this.preferredLanguage = preferredLanguage;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.insuredperson.DTO;
+
+import java.time.LocalDateTime;
+
+//Closed projection of ProfilePicture: everything needed for response headers, without the image bytes
+public interface ProfilePictureInfo {
+    String getPolicyNumber();
+    String getContentType();
+    Long getSize();
+    String getChecksum();
+    LocalDateTime getUpdatedAt();
+}
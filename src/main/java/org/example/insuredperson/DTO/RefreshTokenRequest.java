@@ -0,0 +1,13 @@
+package org.example.insuredperson.DTO;
+
+public class RefreshTokenRequest {
+    private String refreshToken;
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -1,11 +1,15 @@
 package org.example.insuredperson.DTO;
 
 public class ResetPasswordRequest {
+    private String userId;
     private String otp;
     private String newPassword;
     private String confirmNewPassword;
 
     // getters and setters
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
     public String getOtp() { return otp; }
     public void setOtp(String otp) { this.otp = otp; }
 
@@ -0,0 +1,46 @@
+package org.example.insuredperson.DTO;
+
+import java.time.LocalDateTime;
+
+public class UploadSessionResponse {
+    private String uploadId;
+    private String policyNumber;
+    private String fileName;
+    private long totalSize;
+    private long receivedBytes;     // offset for the next chunk
+    private LocalDateTime expiresAt;
+
+    public UploadSessionResponse(String uploadId, String policyNumber, String fileName, long totalSize,
+                                 long receivedBytes, LocalDateTime expiresAt) {
+        this.uploadId = uploadId;
+        this.policyNumber = policyNumber;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.receivedBytes = receivedBytes;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
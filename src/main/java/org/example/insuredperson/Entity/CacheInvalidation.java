@@ -0,0 +1,60 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+//One changed cache key, written in the same transaction as the change; peer instances poll these rows
+//and evict the key locally. Rows only matter for a few seconds and are deleted after the retention period
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_cache_invalidation_created", columnList = "createdAt")
+})
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String cacheName;
+
+    @Column(nullable = false)
+    private String cacheKey;
+
+    @Column(nullable = false, length = 36)
+    private String origin;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public CacheInvalidation() {
+    }
+
+    public CacheInvalidation(String cacheName, String cacheKey, String origin, Instant createdAt) {
+        this.cacheName = cacheName;
+        this.cacheKey = cacheKey;
+        this.origin = origin;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -12,6 +12,11 @@ public class Document {
     private String fileName;
     private String fileType;
 
+    private Long fileSize;      // bytes, recorded at upload so listings never touch the content
+
+    @Column(length = 64)
+    private String checksum;    // SHA-256 (hex) of the content
+
     @Lob
     @Basic(fetch = FetchType.LAZY)
     private byte[] data;
@@ -45,6 +50,22 @@ public class Document {
         this.fileType = fileType;
     }
 
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
     public byte[] getData() {
         return data;
     }
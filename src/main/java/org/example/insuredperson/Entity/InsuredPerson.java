@@ -2,11 +2,20 @@ package org.example.insuredperson.Entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Pattern;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.ArrayList;
 import java.util.List;
 
+//Cached in the second-level cache by policyNumber, and by userId through the natural-id cache (login);
+//regions and their size/TTL are configured in hibernate-cache.conf
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "insuredPerson")
+@NaturalIdCache(region = "insuredPersonByUserId")
 public class InsuredPerson {
 
     @Id
@@ -19,6 +28,7 @@ public class InsuredPerson {
     private String role;
     private String email;
 
+    @NaturalId(mutable = true)
     @Column(unique=true, nullable=false)
     private String userId;
     private String password;
@@ -44,10 +54,11 @@ public class InsuredPerson {
     @Enumerated(EnumType.STRING) // Stores enum name in DB
     private InsuranceType typeOfInsurance;
 
-    @Lob
-    @Basic(fetch = FetchType.LAZY)
-    @Column(columnDefinition = "LONGBLOB")
-    private byte[] profilePicture;  // Stores the image as a byte array
+    // Language of the notification mails (e.g. "de"); null means app.mail.default-locale
+    @Column(length = 8)
+    private String preferredLanguage;
+
+    // The profile image is stored separately in ProfilePicture, keyed by policyNumber
 
     @OneToMany(mappedBy = "insuredPerson", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Document> documents = new ArrayList<>();
@@ -58,14 +69,6 @@ public class InsuredPerson {
         document.setInsuredPerson(this);
     }
 
-    public byte[] getProfilePicture() {
-        return profilePicture;
-    }
-
-    public void setProfilePicture(byte[] profilePicture) {
-        this.profilePicture = profilePicture;
-    }
-
     public String getPhoneNumber() {
         return phoneNumber;
     }
@@ -130,6 +133,14 @@ public class InsuredPerson {
         this.typeOfInsurance = typeOfInsurance;
     }
 
+    public String getPreferredLanguage() {
+        return preferredLanguage;
+    }
+
+    public void setPreferredLanguage(String preferredLanguage) {
+        this.preferredLanguage = preferredLanguage;
+    }
+
     public String getPolicyNumber() {
         return policyNumber;
     }
@@ -0,0 +1,61 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+//A live one-time code shared by every replica; only the SHA-256 of purpose, subject and code is stored
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_one_time_code_hash", columnList = "codeHash", unique = true),
+        @Index(name = "idx_one_time_code_subject", columnList = "purpose, subject"),
+        @Index(name = "idx_one_time_code_expires", columnList = "expiresAt")
+})
+public class OneTimeCode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String codeHash;
+
+    @Column(nullable = false, length = 32)
+    private String purpose;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public OneTimeCode() {
+    }
+
+    public OneTimeCode(String codeHash, String purpose, String subject, Instant expiresAt) {
+        this.codeHash = codeHash;
+        this.purpose = purpose;
+        this.subject = subject;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCodeHash() {
+        return codeHash;
+    }
+
+    public String getPurpose() {
+        return purpose;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
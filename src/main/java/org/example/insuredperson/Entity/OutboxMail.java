@@ -0,0 +1,130 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+//A mail waiting to be sent. Written in the same transaction as the change it announces and
+//removed once the SMTP server has accepted it. A mail carrying a one-time code expires with the code, so the code
+//never sits in the table longer than it is valid; FAILED rows keep their headers and error, but not the body,
+//for app.mail.outbox.failed-retention
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_outbox_mail_due", columnList = "status, nextAttemptAt"),
+        @Index(name = "idx_outbox_mail_expires", columnList = "expiresAt")
+})
+public class OutboxMail {
+
+    public enum Status { PENDING, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    private Instant createdAt;
+
+    // null: no deadline
+    private Instant expiresAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    public OutboxMail() {
+    }
+
+    public OutboxMail(String recipient, String subject, String body) {
+        this(recipient, subject, body, null);
+    }
+
+    public OutboxMail(String recipient, String subject, String body, Instant expiresAt) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(Instant nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !expiresAt.isAfter(now);
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
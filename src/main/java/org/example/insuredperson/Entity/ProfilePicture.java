@@ -0,0 +1,86 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+//Profile image bytes live in their own table so loading an InsuredPerson never reads them
+@Entity
+public class ProfilePicture {
+
+    @Id
+    @Column(nullable = false)
+    private String policyNumber;  // same key as the owning InsuredPerson
+
+    private String contentType;
+
+    private Long size;
+
+    @Column(length = 64)
+    private String checksum;    // SHA-256 (hex) of data, used as the ETag
+
+    @Lob
+    @Column(columnDefinition = "LONGBLOB")
+    private byte[] data;
+
+    private LocalDateTime updatedAt;
+
+    public ProfilePicture() {
+    }
+
+    public ProfilePicture(String policyNumber, String contentType, byte[] data) {
+        this.policyNumber = policyNumber;
+        this.contentType = contentType;
+        this.data = data;
+        this.size = data != null ? (long) data.length : 0L;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    public void setPolicyNumber(String policyNumber) {
+        this.policyNumber = policyNumber;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
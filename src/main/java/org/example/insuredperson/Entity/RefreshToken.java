@@ -0,0 +1,67 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+//A single-use refresh token; only its SHA-256 is stored. Every rotation stays in the same family,
+//so presenting an already-used token can revoke the whole chain
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_refresh_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_refresh_token_family", columnList = "familyId"),
+        @Index(name = "idx_refresh_token_policy", columnList = "policyNumber")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(nullable = false, length = 36)
+    private String familyId;
+
+    @Column(nullable = false)
+    private String policyNumber;
+
+    private Instant expiresAt;
+
+    private boolean used;
+
+    public RefreshToken() {
+    }
+
+    public RefreshToken(String tokenHash, String familyId, String policyNumber, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.familyId = familyId;
+        this.policyNumber = policyNumber;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public String getFamilyId() {
+        return familyId;
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isUsed() {
+        return used;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.insuredperson.Entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+//A resumable document upload in progress; the bytes received so far sit in a part file named after the id
+@Entity
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String policyNumber;
+
+    private String fileName;
+    private String fileType;
+
+    private long totalSize;
+
+    private long receivedBytes;
+
+    @Column(length = 64)
+    private String expectedChecksum;    // SHA-256 (hex) announced by the client, verified on completion
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;    // last chunk; sessions idle past the TTL are discarded
+
+    @Column(length = 36)
+    private String lockedBy;            // claim token of the request writing to the part file right now
+    private LocalDateTime lockedUntil;  // the claim lapses here if its instance died mid-chunk
+
+    public UploadSession() {
+    }
+
+    public UploadSession(String id, String policyNumber, String fileName, String fileType, long totalSize, String expectedChecksum) {
+        this.id = id;
+        this.policyNumber = policyNumber;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.totalSize = totalSize;
+        this.expectedChecksum = expectedChecksum;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public String getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getLockedBy() {
+        return lockedBy;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+}
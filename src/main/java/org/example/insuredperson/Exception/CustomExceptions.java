@@ -38,7 +38,37 @@ public class CustomExceptions {
         }
     }
 
+    //request conflicts with the current state of the resource, e.g. an upload chunk at the wrong offset
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public static class ConflictException extends RuntimeException {
+        public ConflictException(String message) {
+            super(message);
+        }
+    }
+
+    //overload protection: the caller should retry after a short pause
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class ServiceUnavailableException extends RuntimeException {
+        public ServiceUnavailableException(String message) {
+            super(message);
+        }
+    }
+
      //already existing exceptions here...
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public static class TooManyRequestsException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public TooManyRequestsException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     public static class UnauthorizedException extends RuntimeException {
             public UnauthorizedException(String message) {
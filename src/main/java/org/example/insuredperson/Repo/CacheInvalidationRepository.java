@@ -0,0 +1,26 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.transaction.Transactional;
+import org.example.insuredperson.Entity.CacheInvalidation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    // rows are stamped, polled and expired by the database's clock, so instances need not agree on the time
+    @Query("SELECT CURRENT_TIMESTAMP")
+    Instant databaseTime();
+
+    // one transaction's rows share a createdAt, so pages continue by id
+    List<CacheInvalidation> findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(Instant since, Long afterId, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CacheInvalidation c WHERE c.createdAt < :cutoff")
+    int deleteOlderThan(Instant cutoff);
+}
@@ -1,8 +1,11 @@
 package org.example.insuredperson.Repo;
 
+import org.example.insuredperson.DTO.DocumentDTO;
 import org.example.insuredperson.Entity.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +14,22 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     // Find documents by insured person's policy number
     List<Document> findByInsuredPersonPolicyNumber(String policyNumber);
 
+    // Listing metadata in one statement: no content column, no per-document lazy load of the owner
+    @Query("SELECT new org.example.insuredperson.DTO.DocumentDTO(d.id, d.fileName, d.fileType, d.fileSize, d.checksum, " +
+            "p.policyNumber, p.firstName, p.lastName) " +
+            "FROM Document d JOIN d.insuredPerson p WHERE p.policyNumber = :policyNumber ORDER BY d.id")
+    List<DocumentDTO> findMetadataByPolicyNumber(String policyNumber);
+
     Optional<Document> findByInsuredPersonPolicyNumberAndFileName(String policyNumber, String fileName);
+
+    @Query("SELECT d.checksum FROM Document d WHERE d.insuredPerson.policyNumber = :policyNumber AND d.checksum IS NOT NULL")
+    List<String> findChecksumsByPolicyNumber(String policyNumber);
+
+    // which of these documents still keep their content in the data column, without reading it
+    @Query("SELECT d.id FROM Document d WHERE d.id IN :ids AND d.data IS NOT NULL")
+    List<Long> findIdsWithData(Collection<Long> ids);
+
+    // which of these content hashes some document still points to
+    @Query("SELECT DISTINCT d.checksum FROM Document d WHERE d.checksum IN :checksums")
+    List<String> findReferencedChecksums(Collection<String> checksums);
 }
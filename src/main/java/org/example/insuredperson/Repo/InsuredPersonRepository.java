@@ -1,16 +1,23 @@
 package org.example.insuredperson.Repo;
 
 import io.swagger.models.auth.In;
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
+import org.example.insuredperson.DTO.InsuredPersonResponse;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 //JPA repository which is the main source to communicate our entity and service layers with DB
-public interface InsuredPersonRepository extends JpaRepository<InsuredPerson, String>{
+public interface InsuredPersonRepository extends JpaRepository<InsuredPerson, String>, InsuredPersonRepositoryCustom {
 
     List<InsuredPerson> findByFirstName(String firstName);
     List<InsuredPerson> findByLastName(String lastName);
@@ -18,8 +25,37 @@ public interface InsuredPersonRepository extends JpaRepository<InsuredPerson, St
     List<InsuredPerson> findByEmail(String email);
     List<InsuredPerson> findByPhoneNumber(String phoneNumber);
     boolean existsByUserId(String userId);
-    InsuredPerson findByUserId(String userId);
 
+    // Set-based duplicate check for bulk import: [policyNumber, userId] of every row clashing with either list
+    @Query("SELECT i.policyNumber, i.userId FROM InsuredPerson i WHERE i.policyNumber IN :policyNumbers OR i.userId IN :userIds")
+    List<Object[]> findExistingKeys(Collection<String> policyNumbers, Collection<String> userIds);
+
+    // Keyset paging: bounded slices ordered by the primary key, no OFFSET scan and no COUNT query
+    List<InsuredPerson> findAllByOrderByPolicyNumberAsc(Limit limit);
+    List<InsuredPerson> findByPolicyNumberGreaterThanOrderByPolicyNumberAsc(String policyNumber, Limit limit);
+
+    // Export: forward-only stream of just the response columns (no profile picture, no documents)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new org.example.insuredperson.DTO.InsuredPersonResponse(i.policyNumber, i.firstName, i.lastName, " +
+            "i.age, i.userId, i.role, i.email, i.phoneNumber, i.street, i.apartment, i.city, i.zipcode, i.state, " +
+            "i.country, i.typeOfInsurance, i.preferredLanguage) FROM InsuredPerson i ORDER BY i.policyNumber")
+    Stream<InsuredPersonResponse> streamAllForExport();
+
+    // Unified search queries: each one covers every field a query of that shape can match in a single round trip.
+    @Query("SELECT i FROM InsuredPerson i WHERE i.policyNumber = :query OR i.email = :query")
+    List<InsuredPerson> searchByPolicyNumberOrEmail(String query);
+
+    @Query("SELECT i FROM InsuredPerson i WHERE i.policyNumber = :query OR i.phoneNumber = :query")
+    List<InsuredPerson> searchByPolicyNumberOrPhoneNumber(String query);
+
+    @Query("SELECT i FROM InsuredPerson i WHERE i.policyNumber = :query OR i.firstName = :query " +
+            "OR i.lastName = :query OR i.firstName LIKE :prefix ESCAPE '!' OR i.userId = :query")
+    List<InsuredPerson> searchByPolicyNumberOrNameOrUserId(String query, String prefix);
+
+    // Bulk updates bypass the entity, so Hibernate evicts the insuredPerson and insuredPersonByUserId cache regions
     @Modifying
     @Transactional
     @Query("UPDATE InsuredPerson i SET i.firstName = :firstName WHERE i.policyNumber = :policyNumber")
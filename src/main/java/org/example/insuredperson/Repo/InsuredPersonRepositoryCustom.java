@@ -0,0 +1,9 @@
+package org.example.insuredperson.Repo;
+
+import org.example.insuredperson.Entity.InsuredPerson;
+
+public interface InsuredPersonRepositoryCustom {
+
+    // null when no person has this userId
+    InsuredPerson findByUserId(String userId);
+}
@@ -0,0 +1,27 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+//userId lookups as natural-id loads: a derived query always goes to the database, while this resolves
+//userId -> policyNumber from the natural-id cache and the entity from the second-level cache
+public class InsuredPersonRepositoryImpl implements InsuredPersonRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // not readOnly: a read-only load would stop a later save of the same instance from being flushed
+    @Override
+    @Transactional
+    public InsuredPerson findByUserId(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(InsuredPerson.class)
+                .load(userId);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.transaction.Transactional;
+import org.example.insuredperson.Entity.OneTimeCode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface OneTimeCodeRepository extends JpaRepository<OneTimeCode, Long> {
+
+    Optional<OneTimeCode> findByCodeHash(String codeHash);
+
+    // The delete is the compare-and-set: of two replicas consuming the same code, one gets 1
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OneTimeCode c WHERE c.codeHash = :codeHash AND c.expiresAt > :now")
+    int consume(String codeHash, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OneTimeCode c WHERE c.purpose = :purpose AND c.subject = :subject")
+    int deleteBySubject(String purpose, String subject);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OneTimeCode c WHERE c.expiresAt <= :cutoff")
+    int deleteExpired(Instant cutoff);
+}
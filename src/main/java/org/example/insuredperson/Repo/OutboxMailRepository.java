@@ -0,0 +1,33 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import jakarta.persistence.QueryHint;
+import org.example.insuredperson.Entity.OutboxMail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxMailRepository extends JpaRepository<OutboxMail, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock timeout -2): two dispatchers, on one instance or several, never claim the same row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<OutboxMail> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(OutboxMail.Status status, Instant now, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxMail m WHERE m.expiresAt <= :now")
+    int deleteExpired(Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxMail m WHERE m.status = :status AND m.createdAt < :cutoff")
+    int deleteByStatusCreatedBefore(OutboxMail.Status status, Instant cutoff);
+}
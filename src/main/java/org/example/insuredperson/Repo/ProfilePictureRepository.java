@@ -0,0 +1,13 @@
+package org.example.insuredperson.Repo;
+
+import org.example.insuredperson.DTO.ProfilePictureInfo;
+import org.example.insuredperson.Entity.ProfilePicture;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ProfilePictureRepository extends JpaRepository<ProfilePicture, String> {
+
+    // Header metadata only; lets conditional requests be answered without reading the image
+    Optional<ProfilePictureInfo> findInfoByPolicyNumber(String policyNumber);
+}
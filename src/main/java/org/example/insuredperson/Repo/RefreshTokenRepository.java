@@ -0,0 +1,36 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.transaction.Transactional;
+import org.example.insuredperson.Entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Compare-and-set: exactly one of two concurrent refreshes with the same token gets 1
+    @Modifying
+    @Transactional
+    @Query("UPDATE RefreshToken t SET t.used = true WHERE t.id = :id AND t.used = false")
+    int markUsed(Long id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.familyId = :familyId")
+    int deleteByFamily(String familyId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.policyNumber = :policyNumber")
+    int deleteByPolicy(String policyNumber);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpired(Instant cutoff);
+}
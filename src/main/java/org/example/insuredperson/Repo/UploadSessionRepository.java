@@ -0,0 +1,28 @@
+package org.example.insuredperson.Repo;
+
+import jakarta.transaction.Transactional;
+import org.example.insuredperson.Entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    List<UploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+
+    // The update is the lock: of two requests (on any instance) writing to the same upload, one gets 1.
+    // The persistence context is cleared so the caller's next findById sees the current receivedBytes
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.lockedBy = :token, s.lockedUntil = :until " +
+            "WHERE s.id = :id AND (s.lockedUntil IS NULL OR s.lockedUntil < :now)")
+    int claim(String id, String token, LocalDateTime now, LocalDateTime until);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.lockedBy = NULL, s.lockedUntil = NULL WHERE s.id = :id AND s.lockedBy = :token")
+    int release(String id, String token);
+}
@@ -5,21 +5,27 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.example.insuredperson.Service.JwtService;
+import org.example.insuredperson.Service.TokenRevocationService;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final TokenRevocationService revocationService;
 
-    public JwtAuthFilter(JwtService jwtService) {
+    public JwtAuthFilter(JwtService jwtService, TokenRevocationService revocationService) {
         this.jwtService = jwtService;
+        this.revocationService = revocationService;
     }
 
     @Override
@@ -34,12 +40,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 || path.startsWith("/v3/api-docs")
                 || path.equals("/swagger-ui.html")
                 || path.equals("/api/insuredpersons/login")
-                || path.equals("/api/insuredpersons")
+                || path.equals("/api/insuredpersons/token/refresh")
+                || (path.equals("/api/insuredpersons") && "POST".equals(request.getMethod()))  // register; GET is the admin listing
                 || path.equals("/api/insuredpersons/forgot-password")
                 || path.equals("/api/insuredpersons/reset-password")
                 || path.equals("/api/insuredpersons/change-password")
                 || path.startsWith("/api/insuredpersons/profile-picture/")
-                || path.startsWith("/api/insuredpersons/documents/")) {
+                || (path.startsWith("/api/insuredpersons/documents/") && !path.endsWith("/bundle"))) {  // a bundle is every document of a policy
             filterChain.doFilter(request, response);
             return;
         }
@@ -52,24 +59,25 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
-        String userId;
-
-        try {
-            userId = jwtService.validateTokenAndGetUserId(token);
-            if (userId == null) {
-                sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED,
-                        "Invalid or expired token");
-                return;
-            }
-        } catch (Exception ex) {
+        // the only signature check of the request; controllers read the claims from the principal
+        JwtPrincipal principal = jwtService.authenticate(token);
+        if (principal == null) {
+            sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED,
+                    "Invalid or expired token");
+            return;
+        }
+        if (revocationService.isRevoked(principal.getTokenId())) {
             sendErrorResponse(response, HttpServletResponse.SC_UNAUTHORIZED,
-                    "Invalid or malformed token: " + ex.getMessage());
+                    "Token has been revoked");
             return;
         }
 
         //Set authentication in Spring Security context
+        List<SimpleGrantedAuthority> authorities = principal.getRole() != null
+                ? List.of(new SimpleGrantedAuthority("ROLE_" + principal.getRole().toUpperCase(Locale.ROOT)))
+                : Collections.emptyList();
         UsernamePasswordAuthenticationToken authentication =
-                new UsernamePasswordAuthenticationToken(userId, null, Collections.emptyList());
+                new UsernamePasswordAuthenticationToken(principal, null, authorities);
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
         filterChain.doFilter(request, response);
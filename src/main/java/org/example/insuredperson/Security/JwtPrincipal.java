@@ -0,0 +1,65 @@
+package org.example.insuredperson.Security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+//The verified claims of the bearer token, parsed once by JwtAuthFilter and kept as the Authentication principal
+public class JwtPrincipal {
+
+    private final String policyNumber;
+    private final String userId;
+    private final String role;
+    private final String tokenId;   // jti, the handle used to revoke this token
+    private final Instant expiresAt;
+
+    public JwtPrincipal(String policyNumber, String userId, String role, String tokenId, Instant expiresAt) {
+        this.policyNumber = policyNumber;
+        this.userId = userId;
+        this.role = role;
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+    }
+
+    public static JwtPrincipal from(Claims claims) {
+        return new JwtPrincipal(
+                claims.getSubject(),    // sub = policyNumber
+                claims.get("userId", String.class),
+                claims.get("role", String.class),
+                claims.getId(),
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+    }
+
+    public String getPolicyNumber() {
+        return policyNumber;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isAdmin() {
+        return "Admin".equalsIgnoreCase(role);
+    }
+
+    public boolean isUser() {
+        return "User".equalsIgnoreCase(role);
+    }
+
+    @Override
+    public String toString() {
+        return policyNumber;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.insuredperson.Security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.insuredperson.Service.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+//Per-IP limits for the public endpoints, applied before the body is read or a multipart request is parsed.
+//Per-user limits need the body, so the controller applies those
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final int forwardedHops;
+    private volatile boolean warnedAboutProxy;
+
+    // forwardedHops: how many trusted proxies append to X-Forwarded-For (0 = use the socket address)
+    public RateLimitFilter(RateLimiter rateLimiter, int forwardedHops) {
+        this.rateLimiter = rateLimiter;
+        this.forwardedHops = forwardedHops;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String rule = ruleFor(request);
+        if (rule != null) {
+            long waitNanos = rateLimiter.tryAcquire(rule, clientIp(request));
+            if (waitNanos > 0) {
+                response.setContentType("application/json");
+                response.setStatus(429);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.retryAfterSeconds(waitNanos)));
+                response.getWriter().write("{\"status\":429,\"message\":\"Too many requests, please retry later\"}");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String ruleFor(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        switch (request.getRequestURI()) {
+            case "/api/insuredpersons/login":
+                return RateLimiter.LOGIN_IP;
+            case "/api/insuredpersons/forgot-password":
+                return RateLimiter.FORGOT_PASSWORD_IP;
+            case "/api/insuredpersons/reset-password":
+                return RateLimiter.RESET_PASSWORD_IP;
+            case "/api/insuredpersons":
+                return RateLimiter.REGISTER_IP;
+            default:
+                return null;
+        }
+    }
+
+    // The client is the entry the outermost trusted proxy appended; anything left of it can be forged
+    private String clientIp(HttpServletRequest request) {
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedHops == 0 && forwardedFor != null && !warnedAboutProxy) {
+            warnedAboutProxy = true;
+            System.out.println("WARNING: X-Forwarded-For received but app.rate-limit.forwarded-hops=0; "
+                    + "all clients behind the proxy share one rate-limit bucket");
+        }
+        if (forwardedHops > 0 && forwardedFor != null) {
+            String[] hops = forwardedFor.split(",");
+            if (hops.length >= forwardedHops) {
+                return hops[hops.length - forwardedHops].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
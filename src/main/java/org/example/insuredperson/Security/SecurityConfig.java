@@ -1,7 +1,11 @@
 package org.example.insuredperson.Security;
 
+import jakarta.servlet.DispatcherType;
+import org.example.insuredperson.Service.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -12,9 +16,12 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimiter rateLimiter,
+                          @Value("${app.rate-limit.forwarded-hops:1}") int forwardedHops) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = new RateLimitFilter(rateLimiter, forwardedHops);
     }
 
     //Expose a BCryptPasswordEncoder bean
@@ -29,19 +36,25 @@ public class SecurityConfig {
                 .cors(cors -> {})  //enable CORS using your CorsConfig
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // streamed responses finish on an ASYNC dispatch; the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                        .requestMatchers("/api/insuredpersons/documents/*/bundle").authenticated()
                         .requestMatchers("/swagger-ui/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui.html",
                                 "/api/insuredpersons/login",          //login is public
+                                "/api/insuredpersons/token/refresh",  //the access token may already be expired
                                 "/api/insuredpersons/profile-picture/**",
-                                "/api/insuredpersons",                // create new people/register is public
                                 "/api/insuredpersons/forgot-password", // allow password reset request
                                 "/api/insuredpersons/reset-password",   // allow reset password action
                                 "/api/insuredpersons/change-password",
                                 "/api/insuredpersons/documents/**"
-                        ).permitAll().anyRequest().authenticated()      // all other endpoints require JWT
+                        ).permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/insuredpersons").permitAll()  // create new people/register is public
+                        .anyRequest().authenticated()      // all other endpoints require JWT
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, JwtAuthFilter.class);
 
         return http.build();
     }
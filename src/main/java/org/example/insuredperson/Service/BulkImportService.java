@@ -0,0 +1,317 @@
+package org.example.insuredperson.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.insuredperson.DTO.BulkImportResult;
+import org.example.insuredperson.DTO.BulkImportRowResult;
+import org.example.insuredperson.DTO.InsuredPersonRequest;
+import org.example.insuredperson.Entity.InsuranceType;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Bulk registration: rows are read from a CSV/NDJSON stream and processed chunk by chunk
+@Service
+public class BulkImportService {
+
+    public static final String FORMAT_CSV = "text/csv";
+    public static final String FORMAT_NDJSON = "application/x-ndjson";
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int JDBC_BATCH_SIZE = 100;
+
+    private static final String INSERT_SQL = "INSERT INTO insured_person (policy_number, first_name, last_name, age, " +
+            "user_id, password, email, role, phone_number, street, apartment, city, state, country, zipcode, " +
+            "type_of_insurance, preferred_language) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final InsuredPersonRepository repository;
+    private final ValidationService validationService;
+    // BCrypt goes through the shared hashing pool, which keeps part of it free for sign-ins during an import
+    private final PasswordHashingService passwordHashingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    public BulkImportService(InsuredPersonRepository repository, ValidationService validationService,
+                             PasswordHashingService passwordHashingService, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.validationService = validationService;
+        this.passwordHashingService = passwordHashingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BulkImportResult importRows(String contentType, InputStream body) throws IOException {
+        boolean csv = contentType != null && contentType.toLowerCase().startsWith(FORMAT_CSV);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        BulkImportResult result = new BulkImportResult();
+        Set<String> seenPolicyNumbers = new HashSet<>();
+        Set<String> seenUserIds = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        String[] header = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (csv && header == null) {
+                header = splitCsvLine(line);
+                continue;
+            }
+            chunk.add(csv ? parseCsvRow(lineNumber, header, line) : parseJsonRow(lineNumber, line));
+            if (chunk.size() == CHUNK_SIZE) {
+                processChunk(chunk, seenPolicyNumbers, seenUserIds, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, seenPolicyNumbers, seenUserIds, result);
+        }
+        return result;
+    }
+
+    private void processChunk(List<ImportRow> chunk, Set<String> seenPolicyNumbers, Set<String> seenUserIds,
+                              BulkImportResult result) {
+        // 1. Field validation
+        for (ImportRow row : chunk) {
+            if (row.status == null) {
+                validate(row);
+            }
+        }
+
+        // 2. Duplicates inside the uploaded file itself
+        List<ImportRow> candidates = new ArrayList<>();
+        for (ImportRow row : chunk) {
+            if (row.status != null) {
+                continue;
+            }
+            if (!seenPolicyNumbers.add(row.request.getPolicyNumber())) {
+                row.reject(BulkImportRowResult.DUPLICATE, "Policy number repeated in import: " + row.request.getPolicyNumber());
+            } else if (!seenUserIds.add(row.request.getUserId())) {
+                row.reject(BulkImportRowResult.DUPLICATE, "User id repeated in import: " + row.request.getUserId());
+            } else {
+                candidates.add(row);
+            }
+        }
+
+        // 3. Duplicates against the database, one query for the whole chunk
+        List<ImportRow> toInsert = new ArrayList<>();
+        if (!candidates.isEmpty()) {
+            Set<String> policyNumbers = new HashSet<>();
+            Set<String> userIds = new HashSet<>();
+            for (ImportRow row : candidates) {
+                policyNumbers.add(row.request.getPolicyNumber());
+                userIds.add(row.request.getUserId());
+            }
+            Set<String> existingPolicyNumbers = new HashSet<>();
+            Set<String> existingUserIds = new HashSet<>();
+            for (Object[] keys : repository.findExistingKeys(policyNumbers, userIds)) {
+                existingPolicyNumbers.add((String) keys[0]);
+                existingUserIds.add((String) keys[1]);
+            }
+            for (ImportRow row : candidates) {
+                if (existingPolicyNumbers.contains(row.request.getPolicyNumber())) {
+                    row.reject(BulkImportRowResult.DUPLICATE, "Policy number already exists: " + row.request.getPolicyNumber());
+                } else if (existingUserIds.contains(row.request.getUserId())) {
+                    row.reject(BulkImportRowResult.DUPLICATE, "User id already exists: " + row.request.getUserId());
+                } else {
+                    toInsert.add(row);
+                }
+            }
+        }
+
+        // 4. BCrypt, in parallel on the hashing pool, only for rows that will actually be inserted
+        if (!toInsert.isEmpty()) {
+            try {
+                List<String> encoded = passwordHashingService.encodeAll(
+                        toInsert.stream().map(row -> row.request.getPassword()).toList());
+                for (int i = 0; i < toInsert.size(); i++) {
+                    toInsert.get(i).encodedPassword = encoded.get(i);
+                }
+            } catch (RuntimeException e) {
+                toInsert.forEach(row -> row.reject(BulkImportRowResult.FAILED, "Password hashing failed: " + e.getMessage()));
+                toInsert.clear();
+            }
+        }
+
+        // 5. JDBC batch insert; the chunk commits or rolls back as a unit
+        if (!toInsert.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_SQL, toInsert, JDBC_BATCH_SIZE, this::bindInsert));
+                toInsert.forEach(row -> row.status = BulkImportRowResult.CREATED);
+            } catch (DataAccessException e) {
+                toInsert.forEach(row -> row.reject(BulkImportRowResult.FAILED,
+                        "Insert failed: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+
+        for (ImportRow row : chunk) {
+            result.add(new BulkImportRowResult(row.line,
+                    row.request != null ? row.request.getPolicyNumber() : null,
+                    row.request != null ? row.request.getUserId() : null,
+                    row.status, row.message));
+        }
+    }
+
+    private void validate(ImportRow row) {
+        InsuredPersonRequest dto = row.request;
+        try {
+            validationService.validateUserId(dto.getUserId());
+            validationService.validatePassword(dto.getPassword());
+            validationService.validatePolicyNumber(dto.getPolicyNumber());
+            validationService.validateEmail(dto.getEmail());
+            // the JDBC insert skips bean validation, so the entity's @Pattern rules are checked here
+            validationService.validatePhoneNumber(dto.getPhoneNumber());
+            validationService.validateZipcode(dto.getZipcode());
+            validationService.validateLanguage(dto.getPreferredLanguage());
+            dto.setPreferredLanguage(InsuredPersonService.normalizeLanguage(dto.getPreferredLanguage()));
+        } catch (CustomExceptions.ValidationException e) {
+            row.reject(BulkImportRowResult.INVALID, e.getMessage());
+        }
+    }
+
+    private void bindInsert(PreparedStatement ps, ImportRow row) throws SQLException {
+        InsuredPersonRequest dto = row.request;
+        ps.setString(1, dto.getPolicyNumber());
+        ps.setString(2, dto.getFirstName());
+        ps.setString(3, dto.getLastName());
+        if (dto.getAge() != null) {
+            ps.setInt(4, dto.getAge());
+        } else {
+            ps.setNull(4, Types.INTEGER);
+        }
+        ps.setString(5, dto.getUserId());
+        ps.setString(6, row.encodedPassword);
+        ps.setString(7, dto.getEmail());
+        ps.setString(8, dto.getRole());
+        ps.setString(9, dto.getPhoneNumber());
+        ps.setString(10, dto.getStreet());
+        ps.setString(11, dto.getApartment());
+        ps.setString(12, dto.getCity());
+        ps.setString(13, dto.getState());
+        ps.setString(14, dto.getCountry());
+        ps.setString(15, dto.getZipcode());
+        ps.setString(16, dto.getTypeOfInsurance() != null ? dto.getTypeOfInsurance().name() : null);
+        ps.setString(17, dto.getPreferredLanguage());
+    }
+
+    private ImportRow parseJsonRow(long lineNumber, String line) {
+        ImportRow row = new ImportRow(lineNumber);
+        try {
+            row.request = objectMapper.readValue(line, InsuredPersonRequest.class);
+            if (row.request == null) {
+                // a bare "null" line parses without error
+                row.reject(BulkImportRowResult.INVALID, "Row is not a JSON object");
+            }
+        } catch (JsonProcessingException e) {
+            row.reject(BulkImportRowResult.INVALID, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        return row;
+    }
+
+    private ImportRow parseCsvRow(long lineNumber, String[] header, String line) {
+        ImportRow row = new ImportRow(lineNumber);
+        String[] values = splitCsvLine(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            fields.put(header[i].trim(), values[i].isEmpty() ? null : values[i]);
+        }
+
+        InsuredPersonRequest dto = new InsuredPersonRequest();
+        dto.setPolicyNumber(fields.get("policyNumber"));
+        dto.setFirstName(fields.get("firstName"));
+        dto.setLastName(fields.get("lastName"));
+        dto.setUserId(fields.get("userId"));
+        dto.setPassword(fields.get("password"));
+        dto.setEmail(fields.get("email"));
+        dto.setRole(fields.get("role"));
+        dto.setPhoneNumber(fields.get("phoneNumber"));
+        dto.setStreet(fields.get("street"));
+        dto.setApartment(fields.get("apartment"));
+        dto.setCity(fields.get("city"));
+        dto.setState(fields.get("state"));
+        dto.setCountry(fields.get("country"));
+        dto.setZipcode(fields.get("zipcode"));
+        dto.setPreferredLanguage(fields.get("preferredLanguage"));
+        row.request = dto;
+        try {
+            if (fields.get("age") != null) dto.setAge(Integer.parseInt(fields.get("age").trim()));
+            if (fields.get("typeOfInsurance") != null) dto.setTypeOfInsurance(InsuranceType.fromValue(fields.get("typeOfInsurance")));
+        } catch (IllegalArgumentException e) {
+            row.reject(BulkImportRowResult.INVALID, e.getMessage());
+        }
+        return row;
+    }
+
+    // Single-line RFC 4180 split: quoted fields may contain commas and doubled quotes
+    private static String[] splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values.toArray(new String[0]);
+    }
+
+    private static class ImportRow {
+        private final long line;
+        private InsuredPersonRequest request;
+        private String encodedPassword;
+        private String status;
+        private String message;
+
+        ImportRow(long line) {
+            this.line = line;
+        }
+
+        void reject(String status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
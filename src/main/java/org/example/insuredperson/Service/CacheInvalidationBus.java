@@ -0,0 +1,189 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.insuredperson.Entity.CacheInvalidation;
+import org.example.insuredperson.Repo.CacheInvalidationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+//Tells every instance which cache keys a write changed, with the database as the only transport.
+//Keys published during a transaction are de-duplicated and written as rows just before it commits;
+//listeners on this instance hear about them after commit, peers when their next poll sees the rows.
+//Evicting is idempotent, so the poll re-reads a short grace window to catch rows that committed
+//out of id order, and simply skips the ones it has already applied. Rows are stamped and compared with the
+//database's clock, so a skewed instance clock cannot push rows outside the window
+//(the grace only has to cover the time between stamping a row and its commit)
+@Service
+public class CacheInvalidationBus {
+
+    public static final String INSURED_PERSON = "insuredPerson";
+    // userIds that no longer name the person they used to (renamed or deleted)
+    public static final String INSURED_PERSON_USER_ID = "insuredPersonUserId";
+
+    private final CacheInvalidationRepository repository;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Duration grace;
+    private final Duration retention;
+    private final int batchSize;
+
+    private final Map<String, List<Consumer<Collection<String>>>> listeners = new ConcurrentHashMap<>();
+
+    // ids applied within the grace window -> createdAt, oldest first; only touched by the poller
+    private final LinkedHashMap<Long, Instant> applied = new LinkedHashMap<>();
+    // database time of the last poll; null until the first one
+    private Instant watermark;
+
+    private final Timer lag;
+    private final Counter published;
+    private final Counter received;
+
+    private record Key(String cacheName, String key) {
+    }
+
+    public CacheInvalidationBus(CacheInvalidationRepository repository, MeterRegistry meterRegistry,
+                                @Value("${app.cache.invalidation.grace:PT10S}") Duration grace,
+                                @Value("${app.cache.invalidation.retention:PT10M}") Duration retention,
+                                @Value("${app.cache.invalidation.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.grace = grace;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.lag = Timer.builder("cache.invalidation.lag")
+                .description("Time from a write on one instance to the eviction on another")
+                .register(meterRegistry);
+        this.published = Counter.builder("cache.invalidation.published").register(meterRegistry);
+        this.received = Counter.builder("cache.invalidation.received").register(meterRegistry);
+    }
+
+    // Called once per cache with the keys to evict; batches from one poll arrive together
+    public void subscribe(String cacheName, Consumer<Collection<String>> listener) {
+        listeners.computeIfAbsent(cacheName, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void publish(String cacheName, String key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<Key> single = Set.of(new Key(cacheName, key));
+            write(single);
+            notifyLocal(single);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Key> pending = (Set<Key>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Key> keys = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, keys);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(keys);
+                }
+
+                @Override
+                public void afterCommit() {
+                    notifyLocal(keys);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+                }
+            });
+            pending = keys;
+        }
+        pending.add(new Key(cacheName, key));
+    }
+
+    private void write(Set<Key> keys) {
+        Instant now = repository.databaseTime();
+        List<CacheInvalidation> rows = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            rows.add(new CacheInvalidation(key.cacheName(), key.key(), instanceId, now));
+        }
+        repository.saveAll(rows);
+        published.increment(rows.size());
+    }
+
+    private void notifyLocal(Set<Key> keys) {
+        Map<String, Set<String>> byCache = new HashMap<>();
+        for (Key key : keys) {
+            byCache.computeIfAbsent(key.cacheName(), n -> new LinkedHashSet<>()).add(key.key());
+        }
+        dispatch(byCache);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.poll-interval:PT1S}")
+    public synchronized void poll() {
+        Instant pollStart = repository.databaseTime();
+        Map<String, Set<String>> byCache = new HashMap<>();
+        List<CacheInvalidation> rows;
+        Instant since = (watermark != null ? watermark : pollStart).minus(grace);
+        long afterId = 0;
+        do {
+            rows = repository.findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(since, afterId, Limit.of(batchSize));
+            for (CacheInvalidation row : rows) {
+                if (applied.putIfAbsent(row.getId(), row.getCreatedAt()) != null) {
+                    continue;
+                }
+                if (instanceId.equals(row.getOrigin())) {
+                    continue;   // applied locally at commit
+                }
+                byCache.computeIfAbsent(row.getCacheName(), n -> new LinkedHashSet<>()).add(row.getCacheKey());
+                lag.record(Duration.between(row.getCreatedAt(), pollStart));
+                received.increment();
+            }
+            if (!rows.isEmpty()) {
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+        } while (rows.size() == batchSize);
+
+        dispatch(byCache);
+        watermark = pollStart;
+
+        Instant forgetBefore = watermark.minus(grace);
+        for (Iterator<Instant> it = applied.values().iterator(); it.hasNext(); ) {
+            if (!it.next().isBefore(forgetBefore)) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.cleanup-interval:PT5M}")
+    public void removeOld() {
+        repository.deleteOlderThan(repository.databaseTime().minus(retention));
+    }
+
+    private void dispatch(Map<String, Set<String>> byCache) {
+        for (Map.Entry<String, Set<String>> entry : byCache.entrySet()) {
+            for (Consumer<Collection<String>> listener : listeners.getOrDefault(entry.getKey(), List.of())) {
+                try {
+                    listener.accept(entry.getValue());
+                } catch (RuntimeException e) {
+                    System.out.println("Cache invalidation listener for " + entry.getKey() + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
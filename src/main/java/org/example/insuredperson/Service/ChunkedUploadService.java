@@ -0,0 +1,287 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.DTO.UploadSessionRequest;
+import org.example.insuredperson.DTO.UploadSessionResponse;
+import org.example.insuredperson.Entity.Document;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.UploadSession;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Repo.UploadSessionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+//Resumable uploads: chunks are appended to a part file at the offset the server has acknowledged,
+//so memory stays at one buffer whatever the file size and a dropped connection only costs the chunk in flight.
+//The session row is shared through the database, the part file through app.documents.upload-dir: with more than one
+//instance that directory must be on storage they all mount, otherwise a chunk routed elsewhere gets a 503
+@Service
+public class ChunkedUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final UploadSessionRepository sessionRepository;
+    private final InsuredPersonRepository personRepository;
+    private final DocumentRepository documentRepository;
+    private final DocumentStorage documentStorage;
+    private final DocumentBlobFallback documentBlobs;
+    private final Path uploadDir;
+    private final long maxUploadSize;
+    private final Duration sessionTtl;
+
+    // how long a claim on a session survives an instance that dies mid-chunk
+    private static final Duration CLAIM_TTL = Duration.ofMinutes(15);
+
+    public ChunkedUploadService(UploadSessionRepository sessionRepository, InsuredPersonRepository personRepository,
+                                DocumentRepository documentRepository, DocumentStorage documentStorage,
+                                DocumentBlobFallback documentBlobs,
+                                @Value("${app.documents.upload-dir:${app.documents.storage-dir}/uploads}") String uploadDir,
+                                @Value("${app.documents.max-upload-size:2147483648}") long maxUploadSize,
+                                @Value("${app.documents.upload-session-ttl:PT24H}") Duration sessionTtl) throws IOException {
+        this.sessionRepository = sessionRepository;
+        this.personRepository = personRepository;
+        this.documentRepository = documentRepository;
+        this.documentStorage = documentStorage;
+        this.documentBlobs = documentBlobs;
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.maxUploadSize = maxUploadSize;
+        this.sessionTtl = sessionTtl;
+        Files.createDirectories(this.uploadDir);
+    }
+
+    public UploadSessionResponse createSession(String policyNumber, UploadSessionRequest request) throws IOException {
+        String fileName = StringUtils.getFilename(request.getFileName());
+        if (!StringUtils.hasText(fileName)) {
+            throw new CustomExceptions.ValidationException("fileName is required");
+        }
+        if (request.getTotalSize() == null || request.getTotalSize() <= 0) {
+            throw new CustomExceptions.ValidationException("totalSize must be greater than 0");
+        }
+        if (request.getTotalSize() > maxUploadSize) {
+            throw new CustomExceptions.ValidationException("totalSize exceeds the maximum of " + maxUploadSize + " bytes");
+        }
+        String checksum = null;
+        if (StringUtils.hasText(request.getChecksum())) {
+            checksum = request.getChecksum().trim().toLowerCase(Locale.ROOT);
+            if (!SHA256_HEX.matcher(checksum).matches()) {
+                throw new CustomExceptions.ValidationException("checksum must be a hex SHA-256 digest");
+            }
+        }
+        if (!personRepository.existsById(policyNumber)) {
+            throw new CustomExceptions.ResourceNotFoundException("No InsuredPerson found with policyNumber: " + policyNumber);
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), policyNumber, fileName,
+                request.getFileType(), request.getTotalSize(), checksum);
+        Files.createFile(partFile(session.getId()));
+        return toResponse(sessionRepository.save(session));
+    }
+
+    public UploadSession getSession(String uploadId) {
+        return sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Upload not found: " + uploadId));
+    }
+
+    public UploadSessionResponse status(String uploadId) {
+        return toResponse(getSession(uploadId));
+    }
+
+    public UploadSessionResponse appendChunk(String uploadId, long offset, InputStream body) {
+        getSession(uploadId);
+        String token = claim(uploadId);
+        try {
+            // re-read under the claim: the copy read before it may predate another instance's chunk
+            UploadSession session = getSession(uploadId);
+            if (offset != session.getReceivedBytes()) {
+                throw new CustomExceptions.ConflictException("Expected offset " + session.getReceivedBytes() + " but got " + offset);
+            }
+            Path part = requirePartFile(uploadId);
+            long received = offset;
+            IOException failure = null;
+            try (FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                // anything past the acknowledged offset is from a chunk that never completed
+                out.truncate(offset);
+                out.position(offset);
+                ReadableByteChannel in = Channels.newChannel(body);
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                try {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        if (received + n > session.getTotalSize()) {
+                            throw new CustomExceptions.ValidationException("Chunk runs past the declared totalSize of " + session.getTotalSize());
+                        }
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        buffer.clear();
+                        received += n;
+                    }
+                } catch (IOException e) {
+                    // client went away mid-chunk: keep what arrived so the next attempt resumes from there
+                    failure = e;
+                }
+                out.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write chunk for upload " + uploadId, e);
+            }
+
+            session.setReceivedBytes(received);
+            session.setUpdatedAt(LocalDateTime.now());
+            sessionRepository.save(session);
+            if (failure != null) {
+                throw new UncheckedIOException("Chunk interrupted at offset " + received, failure);
+            }
+            return toResponse(session);
+        } finally {
+            sessionRepository.release(uploadId, token);
+        }
+    }
+
+    // Verifies the assembled file, hands it to document storage (a hard link, not a copy) and attaches it to the policy.
+    // The part file is only removed once the transaction has committed: if it rolls back, the session still points at it
+    @Transactional(noRollbackFor = CustomExceptions.ValidationException.class)
+    public DocumentDTO complete(String uploadId) throws IOException {
+        getSession(uploadId);
+        String token = claim(uploadId);
+        try {
+            UploadSession session = getSession(uploadId);
+            if (session.getReceivedBytes() != session.getTotalSize()) {
+                throw new CustomExceptions.ValidationException("Upload incomplete: " + session.getReceivedBytes()
+                        + " of " + session.getTotalSize() + " bytes received");
+            }
+            InsuredPerson person = personRepository.findById(session.getPolicyNumber())
+                    .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException(
+                            "No InsuredPerson found with policyNumber: " + session.getPolicyNumber()));
+
+            Path part = requirePartFile(uploadId);
+            String contentHash;
+            try (InputStream in = Files.newInputStream(part)) {
+                contentHash = ContentHash.sha256Hex(in);
+            }
+            if (session.getExpectedChecksum() != null && !session.getExpectedChecksum().equals(contentHash)) {
+                // the assembled bytes are wrong somewhere; start over rather than keep a corrupt file
+                discard(session);
+                throw new CustomExceptions.ValidationException("Checksum mismatch: expected "
+                        + session.getExpectedChecksum() + " but received " + contentHash);
+            }
+
+            DocumentStorage.StoredContent stored = documentStorage.storeFile(part, contentHash);
+            Document doc = new Document();
+            doc.setFileName(session.getFileName());
+            doc.setFileType(session.getFileType());
+            doc.setChecksum(stored.getContentHash());
+            doc.setFileSize(stored.getSize());
+            doc.setInsuredPerson(person);
+            documentRepository.save(doc);
+            documentBlobs.copyToBlob(doc.getId(), doc.getChecksum());
+            sessionRepository.delete(session);
+            deletePartFileAfterCommit(part);
+
+            return new DocumentDTO(doc.getFileName(), doc.getFileType(), doc.getFileSize(), doc.getChecksum(),
+                    person.getPolicyNumber(), person.getFirstName(), person.getLastName());
+        } finally {
+            sessionRepository.release(uploadId, token);
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        discard(getSession(uploadId));
+    }
+
+    // Abandoned sessions would otherwise keep their part files forever
+    @Scheduled(fixedDelayString = "${app.documents.upload-cleanup-interval:PT1H}")
+    public void removeExpiredSessions() {
+        List<UploadSession> expired = sessionRepository.findByUpdatedAtBefore(LocalDateTime.now().minus(sessionTtl));
+        for (UploadSession session : expired) {
+            if (session.getLockedUntil() != null && session.getLockedUntil().isAfter(LocalDateTime.now())) {
+                continue;   // a chunk is being written right now
+            }
+            try {
+                discard(session);
+            } catch (IOException e) {
+                System.out.println("Failed to remove expired upload " + session.getId() + ": " + e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            System.out.println("Removed " + expired.size() + " expired upload sessions");
+        }
+    }
+
+    private static void deletePartFileAfterCommit(Path part) throws IOException {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Files.deleteIfExists(part);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    Files.deleteIfExists(part);
+                } catch (IOException e) {
+                    System.out.println("Failed to remove part file " + part + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        Files.deleteIfExists(partFile(session.getId()));
+        sessionRepository.delete(session);
+    }
+
+    // A second writer gets a 409 instead of interleaving bytes, whichever instance it reached
+    private String claim(String uploadId) {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (sessionRepository.claim(uploadId, token, now, now.plus(CLAIM_TTL)) == 0) {
+            throw new CustomExceptions.ConflictException("Another chunk is being written to upload " + uploadId);
+        }
+        return token;
+    }
+
+    private Path requirePartFile(String uploadId) {
+        Path part = partFile(uploadId);
+        if (!Files.exists(part)) {
+            throw new CustomExceptions.ServiceUnavailableException("Upload " + uploadId
+                    + " is not available on this instance; app.documents.upload-dir must be shared by all instances");
+        }
+        return part;
+    }
+
+    private Path partFile(String uploadId) {
+        // ids are server-generated UUIDs, but they arrive back through the URL
+        return uploadDir.resolve(UUID.fromString(uploadId) + ".part");
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return new UploadSessionResponse(session.getId(), session.getPolicyNumber(), session.getFileName(),
+                session.getTotalSize(), session.getReceivedBytes(), session.getUpdatedAt().plus(sessionTtl));
+    }
+}
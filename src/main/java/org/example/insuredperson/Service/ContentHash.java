@@ -0,0 +1,41 @@
+package org.example.insuredperson.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+//SHA-256 helpers shared by document storage, profile pictures and the data migrations
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(newDigest().digest(data));
+    }
+
+    public static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Strong ETag value for a content hash
+    public static String etag(String contentHash) {
+        return "\"" + contentHash + "\"";
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Entity.OneTimeCode;
+import org.example.insuredperson.Repo.OneTimeCodeRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+//Codes in the one_time_code table so a reset started on one replica can finish on another.
+//Lookups go through the unique hash index, expiry through the expiresAt index
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "database")
+public class DatabaseOtpStore implements OtpStore {
+
+    private static final int MAX_ATTEMPTS = 20;
+
+    private final OneTimeCodeRepository repository;
+
+    public DatabaseOtpStore(OneTimeCodeRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public String issue(String purpose, String subject, Duration ttl) {
+        repository.deleteBySubject(purpose, subject);
+        Instant expiresAt = Instant.now().plus(ttl);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String code = OtpCodes.next();
+            try {
+                repository.save(new OneTimeCode(hash(purpose, subject, code), purpose, subject, expiresAt));
+                return code;
+            } catch (DataIntegrityViolationException e) {
+                // another replica issued the same code to this subject in between; draw again
+            }
+        }
+        throw new IllegalStateException("Could not allocate a unique code for " + purpose);
+    }
+
+    @Override
+    public boolean matches(String purpose, String subject, String code) {
+        return code != null && repository.findByCodeHash(hash(purpose, subject, code))
+                .filter(c -> c.getSubject().equals(subject) && c.getExpiresAt().isAfter(Instant.now()))
+                .isPresent();
+    }
+
+    @Override
+    public boolean consume(String purpose, String subject, String code) {
+        return code != null && repository.consume(hash(purpose, subject, code), Instant.now()) == 1;
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.cleanup-interval:PT5M}")
+    public void removeExpired() {
+        int removed = repository.deleteExpired(Instant.now());
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " expired one-time codes");
+        }
+    }
+
+    // the subject is part of the hash, so a code only ever matches the account it was sent for
+    private static String hash(String purpose, String subject, String code) {
+        return ContentHash.sha256Hex((purpose + '|' + subject + '|' + code).getBytes(StandardCharsets.UTF_8));
+    }
+}
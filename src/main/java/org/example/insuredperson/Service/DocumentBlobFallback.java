@@ -0,0 +1,44 @@
+package org.example.insuredperson.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+//Until app.documents.shared-storage declares the store a volume every instance mounts and that survives restarts,
+//the store is one instance's local disk (on Cloud Run, gone with the container). New documents then also keep their
+//content in document.data, which DocumentDownloadService falls back to whenever the stored file is missing
+@Service
+public class DocumentBlobFallback {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DocumentStorage documentStorage;
+    private final boolean enabled;
+
+    public DocumentBlobFallback(JdbcTemplate jdbcTemplate, DocumentStorage documentStorage,
+                                @Value("${app.documents.shared-storage:false}") boolean sharedStorage) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.documentStorage = documentStorage;
+        this.enabled = !sharedStorage;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Streams the stored content into the (already inserted) document row, in the caller's transaction
+    public void copyToBlob(Long documentId, String contentHash) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long size = documentStorage.size(contentHash);
+        try (InputStream content = documentStorage.open(contentHash)) {
+            jdbcTemplate.update("UPDATE document SET data = ? WHERE id = ?", ps -> {
+                ps.setBinaryStream(1, content, size);
+                ps.setLong(2, documentId);
+            });
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.Entity.Document;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+//Writes document content to the response straight from the store: Tomcat sendfile when available, FileChannel.transferTo otherwise.
+//The content hash doubles as a strong ETag, so repeat downloads are answered with 304 and interrupted ones resume with a single Range
+@Service
+public class DocumentDownloadService {
+
+    // Tomcat's sendfile contract: the connector streams the file itself once the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Cacheable by the browser only, and always revalidated (cheap thanks to the ETag)
+    public static final String CACHE_CONTROL = "private, no-cache";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DocumentStorage documentStorage;
+    private final DocumentRepository documentRepository;
+
+    // concurrent downloads of the same file share one metadata (and, for legacy rows, BLOB) read
+    private final SingleFlight<DocumentKey, Optional<Document>> documentLoads;
+
+    private record DocumentKey(String policyNumber, String fileName) {
+    }
+
+    public DocumentDownloadService(DocumentStorage documentStorage, DocumentRepository documentRepository, MeterRegistry meterRegistry) {
+        this.documentStorage = documentStorage;
+        this.documentRepository = documentRepository;
+        this.documentLoads = new SingleFlight<>("document", meterRegistry);
+    }
+
+    public Optional<Document> findDocument(String policyNumber, String fileName) {
+        return documentLoads.load(new DocumentKey(policyNumber, fileName),
+                () -> documentRepository.findByInsuredPersonPolicyNumberAndFileName(policyNumber, fileName));
+    }
+
+    public void send(Document doc, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String contentHash = doc.getChecksum();
+        boolean stored = documentStorage.exists(contentHash);
+        if (!stored && doc.getData() == null) {
+            throw new CustomExceptions.ResourceNotFoundException("Document content not found: " + doc.getFileName());
+        }
+
+        if (!stored) {
+            // legacy row whose bytes have not been moved to the store yet
+            writeHeaders(doc, response);
+            response.setContentLength(doc.getData().length);
+            response.getOutputStream().write(doc.getData());
+            return;
+        }
+
+        String etag = ContentHash.etag(contentHash);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        // sets the ETag header, and status 304 when If-None-Match matches
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        writeHeaders(doc, response);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long length = documentStorage.size(contentHash);
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag)) {
+            HttpRange range = singleRange(rangeHeader);
+            if (range != null) {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                if (length == 0 || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        Path file = documentStorage.localPath(contentHash);
+        if (file != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);   // exclusive
+            return;
+        }
+        documentStorage.transferTo(contentHash, start, count, Channels.newChannel(response.getOutputStream()));
+    }
+
+    // Checked before the bundle starts streaming: once the 200 and the first entries are out, a document without
+    // content could only be left out of the ZIP, which the client would take for the complete set
+    public void requireBundleContent(List<DocumentDTO> documents) {
+        List<DocumentDTO> notStored = new ArrayList<>();
+        List<Long> legacyIds = new ArrayList<>();
+        for (DocumentDTO doc : documents) {
+            if (!documentStorage.exists(doc.getChecksum())) {
+                notStored.add(doc);
+                if (doc.getId() != null) {
+                    legacyIds.add(doc.getId());
+                }
+            }
+        }
+        if (notStored.isEmpty()) {
+            return;
+        }
+        Set<Long> withData = new HashSet<>(legacyIds.isEmpty() ? List.of() : documentRepository.findIdsWithData(legacyIds));
+        List<String> missing = notStored.stream()
+                .filter(doc -> doc.getId() == null || !withData.contains(doc.getId()))
+                .map(DocumentDTO::getFileName)
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new CustomExceptions.ResourceNotFoundException("Document content not found: " + String.join(", ", missing));
+        }
+    }
+
+    // One ZIP entry per document, copied from the store one at a time; already-compressed PDFs and images
+    // gain little from deflate, so BEST_SPEED keeps the CPU cost per byte low
+    public void writeBundle(List<DocumentDTO> documents, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        zip.setLevel(Deflater.BEST_SPEED);
+        WritableByteChannel target = Channels.newChannel(zip);
+        Set<String> entryNames = new HashSet<>();
+        for (DocumentDTO doc : documents) {
+            String contentHash = doc.getChecksum();
+            if (documentStorage.exists(contentHash)) {
+                zip.putNextEntry(new ZipEntry(uniqueEntryName(doc.getFileName(), entryNames)));
+                documentStorage.transferTo(contentHash, 0, documentStorage.size(contentHash), target);
+                zip.closeEntry();
+                continue;
+            }
+            // legacy row whose bytes have not been moved to the store yet; by id, since file names repeat
+            Optional<Document> legacy = doc.getId() != null ? documentRepository.findById(doc.getId()) : Optional.empty();
+            if (legacy.isPresent() && legacy.get().getData() != null) {
+                zip.putNextEntry(new ZipEntry(uniqueEntryName(doc.getFileName(), entryNames)));
+                zip.write(legacy.get().getData());
+                zip.closeEntry();
+                continue;
+            }
+            // gone since requireBundleContent: abort the download rather than finish a ZIP without it
+            throw new IOException("Document content not found: " + doc.getFileName());
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    // Same file name uploaded twice: "claim.pdf", "claim (1).pdf", ...
+    // Names are the client's original file names, so any directory part ("../../x", "C:\x") is dropped
+    private static String uniqueEntryName(String fileName, Set<String> used) {
+        String name = fileName != null ? StringUtils.getFilename(fileName.replace('\\', '/')) : null;
+        if (name == null || name.isBlank() || name.equals(".") || name.equals("..")) {
+            name = "document";
+        }
+        if (used.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            String candidate = base + " (" + i + ")" + extension;
+            if (used.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private static void writeHeaders(Document doc, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + doc.getFileName() + "\"");
+        if (doc.getFileType() != null) {
+            response.setContentType(doc.getFileType()); // e.g., application/pdf
+        }
+    }
+
+    // Malformed or multi-range requests fall back to the full body, which RFC 9110 allows
+    private static HttpRange singleRange(String rangeHeader) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // If-Range: only resume when the client's copy is still the current content
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag);
+    }
+}
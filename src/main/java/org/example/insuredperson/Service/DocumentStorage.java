@@ -0,0 +1,50 @@
+package org.example.insuredperson.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+//Where document bytes live; the Document row only keeps metadata and the SHA-256 content hash
+public interface DocumentStorage {
+
+    // Streams the content into the store, hashing it on the way; identical content is stored once
+    StoredContent store(InputStream content) throws IOException;
+
+    // Stores a complete local file the caller has already hashed; hard-linked rather than copied where possible.
+    // The file itself is left in place, so the caller can still retry if its transaction does not commit
+    StoredContent storeFile(Path file, String contentHash) throws IOException;
+
+    boolean exists(String contentHash);
+
+    long size(String contentHash) throws IOException;
+
+    InputStream open(String contentHash) throws IOException;
+
+    // Copies [position, position + count) of the content to the target without staging it on the heap
+    long transferTo(String contentHash, long position, long count, WritableByteChannel target) throws IOException;
+
+    // Local file backing the content, for sendfile; null for backends that are not file based
+    Path localPath(String contentHash);
+
+    // Content last stored (or stored again as a duplicate) before cutoff; candidates for garbage collection
+    List<String> contentHashesStoredBefore(Instant cutoff) throws IOException;
+
+    // Removes the content unless it was stored again at or after cutoff, i.e. by an upload that may not have committed yet
+    boolean deleteIfStoredBefore(String contentHash, Instant cutoff) throws IOException;
+
+    class StoredContent {
+        private final String contentHash;
+        private final long size;
+
+        public StoredContent(String contentHash, long size) {
+            this.contentHash = contentHash;
+            this.size = size;
+        }
+
+        public String getContentHash() { return contentHash; }
+        public long getSize() { return size; }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//Removes stored content that no document row points to any more. Identical uploads share one file, so content is only
+//deleted once no document.checksum references it, and only when it was not stored again within the grace period:
+//an upload that found the file already present may not have committed its row yet.
+//Deleting a person frees its documents' content right after commit; the periodic sweep catches everything else
+@Service
+public class DocumentStorageSweeper {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final DocumentStorage documentStorage;
+    private final DocumentRepository documentRepository;
+    private final Duration grace;
+
+    public DocumentStorageSweeper(DocumentStorage documentStorage, DocumentRepository documentRepository,
+                                  @Value("${app.documents.orphan-grace:PT1H}") Duration grace) {
+        this.documentStorage = documentStorage;
+        this.documentRepository = documentRepository;
+        this.grace = grace;
+    }
+
+    // Content of documents deleted in the current transaction; checked once that transaction has committed
+    public void deleteUnreferencedAfterCommit(Collection<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteUnreferenced(contentHashes);
+            return;
+        }
+        List<String> hashes = List.copyOf(contentHashes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteUnreferenced(hashes);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.documents.sweep-interval:PT6H}", initialDelayString = "${app.documents.sweep-interval:PT6H}")
+    public void sweep() {
+        try {
+            List<String> candidates = documentStorage.contentHashesStoredBefore(Instant.now().minus(grace));
+            for (int i = 0; i < candidates.size(); i += BATCH_SIZE) {
+                deleteUnreferenced(candidates.subList(i, Math.min(i + BATCH_SIZE, candidates.size())));
+            }
+        } catch (IOException e) {
+            System.out.println("Document storage sweep failed: " + e.getMessage());
+        }
+    }
+
+    // Returns how many files were removed
+    public int deleteUnreferenced(Collection<String> contentHashes) {
+        Instant cutoff = Instant.now().minus(grace);
+        Set<String> referenced = new HashSet<>(documentRepository.findReferencedChecksums(contentHashes));
+        int deleted = 0;
+        for (String contentHash : new HashSet<>(contentHashes)) {
+            if (referenced.contains(contentHash)) {
+                continue;
+            }
+            try {
+                if (documentStorage.deleteIfStoredBefore(contentHash, cutoff)) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to delete stored document " + contentHash + ": " + e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " stored documents no longer referenced by any document");
+        }
+        return deleted;
+    }
+}
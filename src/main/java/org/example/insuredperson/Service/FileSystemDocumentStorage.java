@@ -0,0 +1,176 @@
+package org.example.insuredperson.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+//Content-addressed directory: <root>/ab/cd/abcd…(sha-256 hex). Writes go to <root>/tmp first and are moved into place.
+//A file's modification time is when its content was last stored, so garbage collection can spare fresh duplicates
+@Service
+@ConditionalOnProperty(name = "app.documents.storage", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemDocumentStorage implements DocumentStorage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final Path root;
+    private final Path tmpDir;
+
+    public FileSystemDocumentStorage(@Value("${app.documents.storage-dir}") String storageDir) throws IOException {
+        this.root = Paths.get(storageDir).toAbsolutePath().normalize();
+        this.tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public StoredContent store(InputStream content) throws IOException {
+        MessageDigest digest = ContentHash.newDigest();
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            long size = 0;
+            try (ReadableByteChannel in = Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer.array(), 0, buffer.limit());
+                    size += buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                out.force(false);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            moveIntoPlace(tmp, contentHash);
+            return new StoredContent(contentHash, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public StoredContent storeFile(Path file, String contentHash) throws IOException {
+        long size = Files.size(file);
+        Path target = pathFor(contentHash);
+        if (Files.exists(target)) {
+            touch(target);
+            return new StoredContent(contentHash, size);
+        }
+        Path tmp = tmpDir.resolve("upload-" + UUID.randomUUID() + ".part");
+        try {
+            try {
+                Files.createLink(tmp, file);
+            } catch (IOException | UnsupportedOperationException e) {
+                // file lives on another volume (or links are not supported): copy next to the store instead
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moveIntoPlace(tmp, contentHash);
+            // a link keeps the part file's modification time, which may already be past the garbage collection grace
+            touch(target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return new StoredContent(contentHash, size);
+    }
+
+    @Override
+    public boolean exists(String contentHash) {
+        return contentHash != null && SHA256_HEX.matcher(contentHash).matches() && Files.isRegularFile(pathFor(contentHash));
+    }
+
+    @Override
+    public long size(String contentHash) throws IOException {
+        return Files.size(pathFor(contentHash));
+    }
+
+    @Override
+    public InputStream open(String contentHash) throws IOException {
+        return Files.newInputStream(pathFor(contentHash));
+    }
+
+    @Override
+    public long transferTo(String contentHash, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel file = FileChannel.open(pathFor(contentHash), StandardOpenOption.READ)) {
+            long transferred = 0;
+            while (transferred < count) {
+                long n = file.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    break;  // end of file
+                }
+                transferred += n;
+            }
+            return transferred;
+        }
+    }
+
+    @Override
+    public Path localPath(String contentHash) {
+        return pathFor(contentHash);
+    }
+
+    @Override
+    public List<String> contentHashesStoredBefore(Instant cutoff) throws IOException {
+        // only <root>/ab/cd/<hash>: tmp/ and the upload part files never match
+        try (Stream<Path> files = Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                && attributes.lastModifiedTime().toInstant().isBefore(cutoff)
+                && SHA256_HEX.matcher(path.getFileName().toString()).matches()
+                && path.equals(pathFor(path.getFileName().toString())))) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String contentHash, Instant cutoff) throws IOException {
+        Path target = pathFor(contentHash);
+        if (!Files.exists(target) || !Files.getLastModifiedTime(target).toInstant().isBefore(cutoff)) {
+            return false;
+        }
+        return Files.deleteIfExists(target);
+    }
+
+    // Same content already present means the upload is a duplicate: the temp copy is simply dropped
+    private void moveIntoPlace(Path tmp, String contentHash) throws IOException {
+        Path target = pathFor(contentHash);
+        if (Files.exists(target)) {
+            touch(target);
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // a duplicate upload counts as storing the content again, so a concurrent garbage collection leaves it alone
+    private static void touch(Path target) throws IOException {
+        Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+    }
+
+    private Path pathFor(String contentHash) {
+        if (!SHA256_HEX.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 content hash: " + contentHash);
+        }
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.insuredperson.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+//Codes in a ConcurrentHashMap; expiry through a hashed timing wheel, so the sweep only visits
+//the slots whose time has come instead of scanning every live code. Fine for a single instance
+@Service
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final Queue<String>[] wheel;
+    private long lastTick;
+
+    // purpose|subject -> the subject's live code
+    private final Map<String, Entry> codes = new ConcurrentHashMap<>();
+
+    private record Entry(String code, long expiresAt) {
+    }
+
+    // the constructor Spring uses; the other one lets tests drive the clock
+    @Autowired
+    public InMemoryOtpStore(@Value("${app.otp.wheel-tick:PT10S}") Duration tick,
+                            @Value("${app.otp.wheel-slots:64}") int slots) {
+        this(tick, slots, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    public InMemoryOtpStore(Duration tick, int slots, LongSupplier clock) {
+        this.tickMillis = tick.toMillis();
+        this.clock = clock;
+        this.wheel = new Queue[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = clock.getAsLong() / tickMillis;
+    }
+
+    @Override
+    public String issue(String purpose, String subject, Duration ttl) {
+        long expiresAt = clock.getAsLong() + ttl.toMillis();
+        String key = purpose + '|' + subject;
+        Entry previous = codes.get(key);
+        String code;
+        do {
+            code = OtpCodes.next();
+        } while (previous != null && previous.code().equals(code));   // the code in an older mail must stop working
+        codes.put(key, new Entry(code, expiresAt));
+        wheel[slot(expiresAt)].add(key);
+        return code;
+    }
+
+    @Override
+    public boolean matches(String purpose, String subject, String code) {
+        Entry entry = codes.get(purpose + '|' + subject);
+        return entry != null && entry.expiresAt() > clock.getAsLong() && sameCode(entry.code(), code);
+    }
+
+    @Override
+    public boolean consume(String purpose, String subject, String code) {
+        String key = purpose + '|' + subject;
+        Entry entry = codes.get(key);
+        if (entry == null || !sameCode(entry.code(), code)) {
+            return false;
+        }
+        // only the caller that removes this exact entry wins, even against a concurrent reissue
+        return codes.remove(key, entry) && entry.expiresAt() > clock.getAsLong();
+    }
+
+    // Turns the wheel over the ticks that have fully passed: their slots hold codes due then (or on a later lap, which stay queued)
+    @Scheduled(fixedDelayString = "${app.otp.wheel-tick:PT10S}")
+    public synchronized void expire() {
+        long now = clock.getAsLong();
+        long currentTick = now / tickMillis;
+        long from = Math.max(lastTick, currentTick - wheel.length);
+        for (long tick = from; tick < currentTick; tick++) {
+            Queue<String> slot = wheel[(int) (tick % wheel.length)];
+            for (int n = slot.size(); n > 0; n--) {
+                String key = slot.poll();
+                if (key == null) {
+                    break;
+                }
+                Entry entry = codes.get(key);
+                if (entry == null) {
+                    continue;   // already consumed
+                }
+                if (entry.expiresAt() <= now) {
+                    codes.remove(key, entry);
+                } else {
+                    // a later lap, or the subject was issued a new code since; wait in the slot of the live one
+                    wheel[slot(entry.expiresAt())].add(key);
+                }
+            }
+        }
+        lastTick = currentTick;
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    private int slot(long expiresAt) {
+        return (int) ((expiresAt / tickMillis) % wheel.length);
+    }
+
+    // constant time, so response timing says nothing about how many leading digits were right
+    private static boolean sameCode(String expected, String actual) {
+        return actual != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+}
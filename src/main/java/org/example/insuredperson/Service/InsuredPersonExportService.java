@@ -0,0 +1,148 @@
+package org.example.insuredperson.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.insuredperson.DTO.InsuredPersonResponse;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//Streams the whole book straight from a DB cursor to the response, one row in memory at a time
+@Service
+public class InsuredPersonExportService {
+
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_CSV = "csv";
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final String CSV_HEADER = "policyNumber,firstName,lastName,age,userId,role,email,phoneNumber," +
+            "street,apartment,city,state,country,zipcode,typeOfInsurance,preferredLanguage";
+
+    private final InsuredPersonRepository repository;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public InsuredPersonExportService(InsuredPersonRepository repository, ObjectMapper objectMapper,
+                                      PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writerFor(InsuredPersonResponse.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public static String contentType(String format) {
+        return FORMAT_CSV.equalsIgnoreCase(format) ? "text/csv" : "application/x-ndjson";
+    }
+
+    public static void validateFormat(String format) {
+        if (!FORMAT_NDJSON.equalsIgnoreCase(format) && !FORMAT_CSV.equalsIgnoreCase(format)) {
+            throw new CustomExceptions.ValidationException("Unsupported export format: " + format);
+        }
+    }
+
+    public void export(String format, OutputStream out) {
+        // The stream keeps the connection (and the server-side cursor) open, so it must live inside a transaction
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<InsuredPersonResponse> rows = repository.streamAllForExport()) {
+                if (FORMAT_CSV.equalsIgnoreCase(format)) {
+                    writeCsv(rows.iterator(), out);
+                } else {
+                    writeNdjson(rows.iterator(), out);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Export aborted", e);
+            }
+        });
+    }
+
+    private void writeNdjson(Iterator<InsuredPersonResponse> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        if (count > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private void writeCsv(Iterator<InsuredPersonResponse> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        long count = 0;
+        while (rows.hasNext()) {
+            InsuredPersonResponse row = rows.next();
+            writeCsvField(writer, row.getPolicyNumber()).write(',');
+            writeCsvField(writer, row.getFirstName()).write(',');
+            writeCsvField(writer, row.getLastName()).write(',');
+            writeCsvField(writer, row.getAge() != null ? row.getAge().toString() : null).write(',');
+            writeCsvField(writer, row.getUserId()).write(',');
+            writeCsvField(writer, row.getRole()).write(',');
+            writeCsvField(writer, row.getEmail()).write(',');
+            writeCsvField(writer, row.getPhoneNumber()).write(',');
+            writeCsvField(writer, row.getStreet()).write(',');
+            writeCsvField(writer, row.getApartment()).write(',');
+            writeCsvField(writer, row.getCity()).write(',');
+            writeCsvField(writer, row.getState()).write(',');
+            writeCsvField(writer, row.getCountry()).write(',');
+            writeCsvField(writer, row.getZipcode()).write(',');
+            writeCsvField(writer, row.getTypeOfInsurance() != null ? row.getTypeOfInsurance().getLabel() : null).write(',');
+            writeCsvField(writer, row.getPreferredLanguage());
+            writer.write('\n');
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    // RFC 4180 quoting, only when the value needs it
+    private static Writer writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return writer;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return writer;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+        return writer;
+    }
+}
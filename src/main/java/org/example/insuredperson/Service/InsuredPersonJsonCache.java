@@ -0,0 +1,84 @@
+package org.example.insuredperson.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.insuredperson.DTO.APIResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Finished UTF-8 JSON of GET /{policyNumber}, so a repeat read of an unchanged person is a map lookup and a byte copy
+//instead of mapping the entity and running Jackson again. Entries go away whenever the person is written here or on a peer
+@Service
+public class InsuredPersonJsonCache {
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Entry> responses;
+
+    // Bumped on every invalidation. A miss remembers it before loading and only stores its bytes if it is unchanged,
+    // so a read that raced a write can't put the old version back after the eviction
+    private final AtomicLong version = new AtomicLong();
+
+    // policyNumber as stored, so a lookup that only matches case-insensitively still goes through the database
+    private record Entry(String policyNumber, byte[] json) {
+    }
+
+    public InsuredPersonJsonCache(ObjectMapper objectMapper, CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                  @Value("${app.response-cache.insured-person.max-size:10000}") long maxSize,
+                                  @Value("${app.response-cache.insured-person.ttl:PT10M}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // insured-person.json cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "insured-person.json");
+        invalidationBus.subscribe(CacheInvalidationBus.INSURED_PERSON, policyNumbers -> {
+            version.incrementAndGet();
+            for (String policyNumber : policyNumbers) {
+                responses.invalidate(key(policyNumber));
+            }
+        });
+    }
+
+    // The cached bytes for exactly this policyNumber, or null
+    public byte[] get(String policyNumber) {
+        Entry entry = responses.getIfPresent(key(policyNumber));
+        return entry != null && entry.policyNumber().equals(policyNumber) ? entry.json() : null;
+    }
+
+    // Read before loading the person; pass it to put
+    public long version() {
+        return version.get();
+    }
+
+    // Serializes the response and keeps it unless the person was invalidated since version was read
+    public byte[] put(String policyNumber, long version, APIResponse<?> response) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize InsuredPerson " + policyNumber, e);
+        }
+        Entry entry = new Entry(policyNumber, json);
+        responses.asMap().compute(key(policyNumber),
+                (key, current) -> this.version.get() == version ? entry : current);
+        return json;
+    }
+
+    public long size() {
+        return responses.estimatedSize();
+    }
+
+    private static String key(String policyNumber) {
+        return policyNumber.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+//Unified search behind /policySearch: classifies the query once and resolves it with a single repository call
+@Service
+public class InsuredPersonSearchService {
+
+    private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    private static final Pattern PHONE = Pattern.compile("^[0-9]{10}$");
+
+    // Same order the old fallback cascade tried the fields in; the lowest matching rank wins
+    private static final int RANK_POLICY_NUMBER = 0;
+    private static final int RANK_FIRST_NAME = 1;
+    private static final int RANK_LAST_NAME = 2;
+    private static final int RANK_FIRST_NAME_PREFIX = 3;
+    private static final int RANK_EMAIL = 4;
+    private static final int RANK_PHONE_NUMBER = 5;
+    private static final int RANK_USER_ID = 6;
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    public enum QueryType { EMAIL, PHONE, TEXT }
+
+    private final InsuredPersonRepository repository;
+
+    public InsuredPersonSearchService(InsuredPersonRepository repository) {
+        this.repository = repository;
+    }
+
+    public static QueryType classify(String query) {
+        if (query.indexOf('@') >= 0 && EMAIL.matcher(query).matches()) {
+            return QueryType.EMAIL;
+        }
+        if (PHONE.matcher(query).matches()) {
+            return QueryType.PHONE;
+        }
+        return QueryType.TEXT;
+    }
+
+    public SearchResult search(String query) {
+        if (query == null || query.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), false);
+        }
+
+        // An email or phone shaped query can only ever hit its own column (or the primary key),
+        // so the other fields are left out of the statement altogether
+        List<InsuredPerson> candidates = switch (classify(query)) {
+            case EMAIL -> repository.searchByPolicyNumberOrEmail(query);
+            case PHONE -> repository.searchByPolicyNumberOrPhoneNumber(query);
+            case TEXT -> repository.searchByPolicyNumberOrNameOrUserId(query, escapeLike(query) + "%");
+        };
+
+        int bestRank = NO_MATCH;
+        List<InsuredPerson> best = new ArrayList<>();
+        for (InsuredPerson person : candidates) {
+            int rank = rank(person, query);
+            if (rank < bestRank) {
+                bestRank = rank;
+                best.clear();
+            }
+            if (rank == bestRank && rank != NO_MATCH) {
+                best.add(person);
+            }
+        }
+        return new SearchResult(best, bestRank == RANK_POLICY_NUMBER);
+    }
+
+    // Case-insensitive like the database collation: every row the query returned must be able to rank
+    private static int rank(InsuredPerson person, String query) {
+        if (query.equalsIgnoreCase(person.getPolicyNumber())) return RANK_POLICY_NUMBER;
+        if (query.equalsIgnoreCase(person.getFirstName())) return RANK_FIRST_NAME;
+        if (query.equalsIgnoreCase(person.getLastName())) return RANK_LAST_NAME;
+        if (startsWithIgnoreCase(person.getFirstName(), query)) return RANK_FIRST_NAME_PREFIX;
+        if (query.equalsIgnoreCase(person.getEmail())) return RANK_EMAIL;
+        if (query.equalsIgnoreCase(person.getPhoneNumber())) return RANK_PHONE_NUMBER;
+        if (query.equalsIgnoreCase(person.getUserId())) return RANK_USER_ID;
+        return NO_MATCH;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // '!' is the escape character declared on the LIKE in the repository query
+    private static String escapeLike(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 4);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '!' || c == '%' || c == '_') {
+                sb.append('!');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    public static class SearchResult {
+        private final List<InsuredPerson> persons;
+        private final boolean policyMatch;
+
+        public SearchResult(List<InsuredPerson> persons, boolean policyMatch) {
+            this.persons = persons;
+            this.policyMatch = policyMatch;
+        }
+
+        public List<InsuredPerson> getPersons() { return persons; }
+        public boolean isPolicyMatch() { return policyMatch; }
+        public boolean isEmpty() { return persons.isEmpty(); }
+    }
+}
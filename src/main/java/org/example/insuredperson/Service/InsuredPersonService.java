@@ -1,27 +1,33 @@
 
 package org.example.insuredperson.Service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.insuredperson.DTO.ChangePasswordRequest;
+import org.example.insuredperson.DTO.CursorPage;
 import org.example.insuredperson.DTO.InsuredPersonRequest;
 import org.example.insuredperson.DTO.LoginRequest;
+import org.example.insuredperson.DTO.ProfilePictureInfo;
 import org.example.insuredperson.DTO.ResetPasswordRequest;
 import org.example.insuredperson.Entity.Document;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.ProfilePicture;
 import org.example.insuredperson.Exception.CustomExceptions;
 import org.example.insuredperson.Repo.DocumentRepository;
 import org.example.insuredperson.Repo.InsuredPersonRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.example.insuredperson.Repo.ProfilePictureRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 @Service
@@ -29,23 +35,48 @@ public class    InsuredPersonService {
     private final InsuredPersonRepository repository;
     private final JwtService jwtService;
     private ValidationService validationService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final DocumentRepository documentRepository;
+    private final ProfilePictureRepository profilePictureRepository;
+    private final DocumentStorage documentStorage;
+    private final DocumentBlobFallback documentBlobs;
+    private final DocumentStorageSweeper documentSweeper;
+    private final OtpStore otpStore;
 
-    @Autowired
-    private JavaMailSender mailSender;
+    private static final String PASSWORD_RESET = "password-reset";
+    private static final Duration PASSWORD_RESET_TTL = Duration.ofMinutes(10);
 
-    @Value("${app.mail.from}")
-    private String fromEmail;
-    private final Map<String, PasswordResetOtp> tokenStore = new HashMap<>();
+    private final MailOutbox mailOutbox;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+
+    // a dashboard opening fires several reads of the same person and picture at once; they share one query
+    private final SingleFlight<PersonLoad, InsuredPerson> personLoads;
+    private final SingleFlight<String, Optional<ProfilePicture>> pictureLoads;
+
+    // persons are coalesced per response-cache version (InsuredPersonJsonCache.version()), see findById(String, long)
+    private record PersonLoad(String policyNumber, long cacheVersion) {
+    }
+
+    private static final long NO_CACHE_VERSION = -1;
 
     //constructor where it will initialize the obj
-    public InsuredPersonService(InsuredPersonRepository repository, DocumentRepository documentRepository, JwtService jwtService, ValidationService validationService, PasswordEncoder passwordEncoder) {
+    public InsuredPersonService(InsuredPersonRepository repository, DocumentRepository documentRepository, ProfilePictureRepository profilePictureRepository, DocumentStorage documentStorage, DocumentBlobFallback documentBlobs, DocumentStorageSweeper documentSweeper, JwtService jwtService, ValidationService validationService, PasswordHashingService passwordHashingService, OtpStore otpStore, MailOutbox mailOutbox, CacheInvalidationBus invalidationBus, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.repository = repository;
         this.documentRepository = documentRepository;
+        this.profilePictureRepository = profilePictureRepository;
+        this.documentStorage = documentStorage;
+        this.documentBlobs = documentBlobs;
+        this.documentSweeper = documentSweeper;
         this.jwtService = jwtService;
         this.validationService = validationService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.otpStore = otpStore;
+        this.mailOutbox = mailOutbox;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.personLoads = new SingleFlight<>("insured-person", meterRegistry);
+        this.pictureLoads = new SingleFlight<>("profile-picture", meterRegistry);
     }
 
 
@@ -54,13 +85,47 @@ public class    InsuredPersonService {
         return repository.findAll(PageRequest.of(offSet, pageSize));
     }
 
+    //keyset (cursor) paging over policyNumber: fetches one extra row to know if there is a next page, skips the count
+    public CursorPage<InsuredPerson> getInsuredListAfter(String cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new CustomExceptions.ValidationException("pageSize must be at least 1");
+        }
+        Limit limit = Limit.of(pageSize + 1);
+        List<InsuredPerson> rows = (cursor == null || cursor.isEmpty())
+                ? repository.findAllByOrderByPolicyNumberAsc(limit)
+                : repository.findByPolicyNumberGreaterThanOrderByPolicyNumberAsc(decodeCursor(cursor), limit);
+
+        boolean hasNext = rows.size() > pageSize;
+        List<InsuredPerson> content = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? encodeCursor(content.get(content.size() - 1).getPolicyNumber()) : null;
+        return new CursorPage<>(content, nextCursor, hasNext);
+    }
+
+    private static String encodeCursor(String policyNumber) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(policyNumber.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new CustomExceptions.ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+
 
 
     //getting insured person single data (record) using person id
     public InsuredPerson findById(String policyNumber){
-        return repository.findById(policyNumber)
-                .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("InsuredPerson not found with policyNumber: " + policyNumber));
+        return findById(policyNumber, NO_CACHE_VERSION);
+    }
 
+    // For callers that cache what they build from the person, with the cache version read before the call.
+    // Only loads started under the same version are shared: a reader that saw an invalidation must not get
+    // a person loaded before that write, or it would cache the old state under the new version
+    public InsuredPerson findById(String policyNumber, long cacheVersion) {
+        return personLoads.load(new PersonLoad(policyNumber, cacheVersion), () -> repository.findById(policyNumber)
+                .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("InsuredPerson not found with policyNumber: " + policyNumber)));
     }
 
     // find by first name
@@ -178,6 +243,8 @@ public class    InsuredPersonService {
 //    }
 
     //creating new record and inserting into the dto
+    //BCrypt and the document writes happen first; only the insert and its welcome mail run in a transaction,
+    //so no connection is held while the password is hashed or the files are streamed
     public InsuredPerson createInsuredPerson(InsuredPersonRequest dto) {
         if(repository.existsById(dto.getPolicyNumber())) {
             throw new CustomExceptions.DuplicatePolicyException("Policy number already exists: " + dto.getPolicyNumber());
@@ -191,6 +258,7 @@ public class    InsuredPersonService {
         validationService.validatePassword(dto.getPassword());
         validationService.validatePolicyNumber(dto.getPolicyNumber());
         validationService.validateEmail(dto.getEmail());
+        validationService.validateLanguage(dto.getPreferredLanguage());
 
         InsuredPerson entity = new InsuredPerson();
         entity.setPolicyNumber(dto.getPolicyNumber());
@@ -198,7 +266,7 @@ public class    InsuredPersonService {
         entity.setLastName(dto.getLastName());
         entity.setAge(dto.getAge());
         entity.setUserId(dto.getUserId());
-        entity.setPassword(passwordEncoder.encode(dto.getPassword()));
+        entity.setPassword(passwordHashingService.encode(dto.getPassword()));
         entity.setEmail(dto.getEmail());
         entity.setRole(dto.getRole());
         entity.setPhoneNumber(dto.getPhoneNumber());
@@ -209,6 +277,7 @@ public class    InsuredPersonService {
         entity.setCountry(dto.getCountry());
         entity.setZipcode(dto.getZipcode());
         entity.setTypeOfInsurance(dto.getTypeOfInsurance());
+        entity.setPreferredLanguage(normalizeLanguage(dto.getPreferredLanguage()));
 
 
         // Process documents (if any)
@@ -223,8 +292,15 @@ public class    InsuredPersonService {
                     Document doc = new Document();
                     doc.setFileName(file.getOriginalFilename());
                     doc.setFileType(file.getContentType());
-                    try {
-                        doc.setData(file.getBytes());
+                    // Streamed into the content store; only the hash and size stay on the row
+                    try (InputStream content = file.getInputStream()) {
+                        DocumentStorage.StoredContent stored = documentStorage.store(content);
+                        doc.setChecksum(stored.getContentHash());
+                        doc.setFileSize(stored.getSize());
+                        // the store is not shared yet: the row keeps a copy (at most the multipart limit per file)
+                        if (documentBlobs.isEnabled()) {
+                            doc.setData(file.getBytes());
+                        }
                     } catch (IOException e) {
                         throw new RuntimeException("Failed to read document", e);
                     }
@@ -236,37 +312,44 @@ public class    InsuredPersonService {
         }
 
 
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(entity.getEmail());
-            message.setSubject("Insurance Portal Credentials Created Successfully");
-
-            message.setText("Hello " + entity.getFirstName() + ",\n\n" +
-                    "Thank you for registering with our Insurance company.\n\n" +
-                    "Here are your login credentials:\n" +
-                    "Username: " + entity.getUserId() + "\n" +
-                    "To reset your password or set a new one, please visit the following link:\n" +
-                    "http://localhost:3000/forgot-password\n\n" +
-                    "Thanks,\n" +
-                    "SpringBoot Operations Team");
-
-            mailSender.send(message);
-        } catch (Exception e) {
-            // Wrap low-level SMTP error into your own exception
-            throw new CustomExceptions.UnauthorizedException("Failed to send reset email. Please check your email configuration.");
-        }
-        return repository.save(entity);
+        return transactionTemplate.execute(status -> {
+            InsuredPerson saved = repository.save(entity);
+            // queued in this transaction, sent by MailDispatcher after commit
+            mailOutbox.enqueue(entity.getEmail(), mailLocale(entity), MailTemplates.WELCOME,
+                    Map.of("firstName", Objects.toString(entity.getFirstName(), ""), "userId", entity.getUserId()));
+            return saved;
+        });
     }
 
     public void saveProfilePicture(String policyNumber, MultipartFile profilePicture) throws IOException {
-        InsuredPerson insuredPerson = repository.findById(policyNumber)
-                .orElseThrow(() -> new RuntimeException("Policy number not found"));
+        if (!repository.existsById(policyNumber)) {
+            throw new RuntimeException("Policy number not found");
+        }
 
-        insuredPerson.setProfilePicture(profilePicture.getBytes());
-        repository.save(insuredPerson);
+        byte[] data = profilePicture.getBytes();
+        ProfilePicture picture = new ProfilePicture(policyNumber, profilePicture.getContentType(), data);
+        picture.setChecksum(ContentHash.sha256Hex(data));
+        profilePictureRepository.save(picture);
     }
 
+    //header metadata without the image bytes; returns null when the person exists but has no picture
+    public ProfilePictureInfo getProfilePictureInfo(String policyNumber) {
+        Optional<ProfilePictureInfo> info = profilePictureRepository.findInfoByPolicyNumber(policyNumber);
+        if (info.isPresent()) {
+            return info.get();
+        }
+        if (!repository.existsById(policyNumber)) {
+            throw new RuntimeException("User not found");
+        }
+        return null;
+    }
+
+    //returns null when there is no picture
+    public ProfilePicture getProfilePicture(String policyNumber) {
+        return pictureLoads.load(policyNumber, () -> profilePictureRepository.findById(policyNumber)).orElse(null);
+    }
+
+    @Transactional
     public InsuredPerson updateInsuredPerson(String pathPolicyNumber, InsuredPersonRequest dto) {
         //Fetch the record to update using the path parameter ie., policyNumber
         InsuredPerson entity = repository.findById(pathPolicyNumber)
@@ -287,8 +370,13 @@ public class    InsuredPersonService {
         if(dto.getCountry() !=null) entity.setCountry(dto.getCountry());
         if(dto.getZipcode() !=null) entity.setZipcode(dto.getZipcode());
         if(dto.getTypeOfInsurance() !=null) entity.setTypeOfInsurance(dto.getTypeOfInsurance());
+        if(dto.getPreferredLanguage() !=null) {
+            validationService.validateLanguage(dto.getPreferredLanguage());
+            entity.setPreferredLanguage(normalizeLanguage(dto.getPreferredLanguage()));
+        }
 
         //UserId check
+        String previousUserId = entity.getUserId();
         if (dto.getUserId() != null) {
             InsuredPerson existingUser = repository.findByUserId(dto.getUserId());
             if (existingUser != null && !existingUser.getPolicyNumber().equals(pathPolicyNumber)) {
@@ -298,36 +386,43 @@ public class    InsuredPersonService {
             entity.setUserId(dto.getUserId());
         }
 
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(entity.getEmail());
-            message.setSubject("Insurance Portal Detials Updated Successfully");
-
-            message.setText("Hello " + entity.getFirstName() + ",\n\n" +
-                    "Thank you for registering with our Insurance company.\n\n" +
-                    "As per your request we updated your details in our portal, please check the same with your credentials. If you have any" +
-                    "concerns please let our insurance company know, we will follow up the same.\n\n" +
-                    "Thanks,\n" +
-                    "SpringBoot Operations Team");
-
-            mailSender.send(message);
-        } catch (Exception e) {
-            // Wrap low-level SMTP error into your own exception
-            throw new CustomExceptions.UnauthorizedException("Failed to send reset email. Please check your email configuration.");
-        }
         //Save and return
-        return repository.save(entity);
+        InsuredPerson saved = repository.save(entity);
+        invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON, pathPolicyNumber);
+        if (previousUserId != null && !previousUserId.equals(entity.getUserId())) {
+            invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON_USER_ID, previousUserId);
+        }
+        mailOutbox.enqueue(entity.getEmail(), mailLocale(entity), MailTemplates.DETAILS_UPDATED,
+                Map.of("firstName", Objects.toString(entity.getFirstName(), "")));
+        return saved;
     }
 
 
     //delete record with the help of policyNumber
+    @Transactional
     public void deleteInsuredPerson(String policyNumber) {
-        if (!repository.existsById(policyNumber)) {
-            throw new CustomExceptions.ResourceNotFoundException(
-                    "InsuredPerson not found with policyNumber: " + policyNumber);
-        }
+        InsuredPerson entity = repository.findById(policyNumber)
+                .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException(
+                        "InsuredPerson not found with policyNumber: " + policyNumber));
+        // the rows go with the person; their stored content once no other document shares it
+        List<String> contentHashes = documentRepository.findChecksumsByPolicyNumber(policyNumber);
         repository.deleteById(policyNumber);
+        profilePictureRepository.deleteById(policyNumber);
+        documentSweeper.deleteUnreferencedAfterCommit(contentHashes);
+        invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON, policyNumber);
+        if (entity.getUserId() != null) {
+            invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON_USER_ID, entity.getUserId());
+        }
+    }
+
+    // "DE" and "de-de" are stored as "de" and "de-DE"; bulk imports normalize the same way
+    static String normalizeLanguage(String language) {
+        return language == null ? null : Locale.forLanguageTag(language).toLanguageTag();
+    }
+
+    // the person's language for notification mails; null falls back to app.mail.default-locale
+    private static Locale mailLocale(InsuredPerson person) {
+        return person.getPreferredLanguage() == null ? null : Locale.forLanguageTag(person.getPreferredLanguage());
     }
 
     public String generateTokenForUser(InsuredPerson user) {
@@ -337,7 +432,7 @@ public class    InsuredPersonService {
     //Login credentials service
     public InsuredPerson login(LoginRequest loginRequest) {
         InsuredPerson user = repository.findByUserId(loginRequest.getUserId());
-        if (user == null || !passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(loginRequest.getPassword(), user.getPassword())) {
             throw new CustomExceptions.UnauthorizedException("Invalid credentials!!! Please try again.");
         }
 
@@ -345,38 +440,25 @@ public class    InsuredPersonService {
     }
 
         // Step 1: Generate reset token and send email
+        @Transactional
         public String forgotPassword(String userId) {
         InsuredPerson user = repository.findByUserId(userId);
 
             if (user == null) {
                 throw new CustomExceptions.ResourceNotFoundException("User not found");
             }
-            String otp = String.format("%06d", new Random().nextInt(999999));
-            tokenStore.put(otp, new PasswordResetOtp(userId, LocalDateTime.now().plusMinutes(10)));
-            // Send email safely
-            try {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setFrom(fromEmail);
-                message.setTo(user.getEmail());
-                message.setSubject("Password Reset OTP");
-                message.setText("Hello "+user.getFirstName()+
-                                "."+"\n\nAs you requested for resetting the password, " +
-                                "Here is your reset OTP: " + otp+"\n\n\n\n"+
-                                "Thanks,"+"\n"+
-                                "SpringBoot Operations team.");
-                mailSender.send(message);
-            } catch (Exception e) {
-                // Wrap low-level SMTP error into your own exception
-                throw new CustomExceptions.UnauthorizedException("Failed to send reset email. Please check your email configuration.");
-            }
+            String otp = otpStore.issue(PASSWORD_RESET, userId, PASSWORD_RESET_TTL);
+            mailOutbox.enqueue(user.getEmail(), mailLocale(user), MailTemplates.PASSWORD_RESET,
+                    Map.of("firstName", Objects.toString(user.getFirstName(), ""), "otp", otp), PASSWORD_RESET_TTL);
 
             return "Reset OTP sent successfully to the following email: "+ user.getEmail();
         }
 
     // Step 2: Reset password with token
     public InsuredPerson resetPassword(ResetPasswordRequest resetPasswordRequest) {
-        PasswordResetOtp resetOtp = tokenStore.get(resetPasswordRequest.getOtp());
-        if (resetOtp == null || resetOtp.getExpiry().isBefore(LocalDateTime.now())) {
+        // the OTP is only checked against the account it was sent for
+        String userId = resetPasswordRequest.getUserId();
+        if (userId == null || !otpStore.matches(PASSWORD_RESET, userId, resetPasswordRequest.getOtp())) {
             throw new CustomExceptions.UnauthorizedException("Invalid or expired OTP");
         }
 
@@ -385,17 +467,19 @@ public class    InsuredPersonService {
         if(!resetPasswordRequest.getNewPassword().equals(resetPasswordRequest.getConfirmNewPassword())) {
             throw new CustomExceptions.UnauthorizedException("Passwords do not match");
         }
-        InsuredPerson user = repository.findByUserId(resetOtp.getUserId());
+        InsuredPerson user = repository.findByUserId(userId);
         if (user == null) {
             throw new CustomExceptions.ResourceNotFoundException("User not found");
         }
+        // single use, even when two resets with the same OTP race (possibly on different instances)
+        if (!otpStore.consume(PASSWORD_RESET, userId, resetPasswordRequest.getOtp())) {
+            throw new CustomExceptions.UnauthorizedException("Invalid or expired OTP");
+        }
 
         // Encode new password
-        user.setPassword(passwordEncoder.encode(resetPasswordRequest.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(resetPasswordRequest.getNewPassword()));
         repository.save(user);
-
-        // Remove token after use
-        tokenStore.remove(resetPasswordRequest.getOtp());
+        invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON, user.getPolicyNumber());
 
         return user;
     }
@@ -403,7 +487,7 @@ public class    InsuredPersonService {
     //updated Password /change password
     public InsuredPerson updatePassword(ChangePasswordRequest changePasswordRequest) {
         InsuredPerson user = repository.findByUserId(changePasswordRequest.getUserId());
-        if (user == null || !passwordEncoder.matches(changePasswordRequest.getOldPassword(), user.getPassword())) {
+        if (user == null || !passwordHashingService.matches(changePasswordRequest.getOldPassword(), user.getPassword())) {
             throw new CustomExceptions.UnauthorizedException("Invalid old password credentials!!! Please try again.");
         }
         // Validate password strength
@@ -411,21 +495,10 @@ public class    InsuredPersonService {
         if(!changePasswordRequest.getNewPassword().equals(changePasswordRequest.getConfirmNewPassword())) {
             throw new CustomExceptions.UnauthorizedException("Passwords do not match");
         }
-        user.setPassword(passwordEncoder.encode(changePasswordRequest.getNewPassword()));
+        user.setPassword(passwordHashingService.encode(changePasswordRequest.getNewPassword()));
         repository.save(user);
+        invalidationBus.publish(CacheInvalidationBus.INSURED_PERSON, user.getPolicyNumber());
 
         return user;
     }
-    private static class PasswordResetOtp {
-        private String userId;
-        private LocalDateTime expiry;
-
-        public PasswordResetOtp(String userId, LocalDateTime expiry) {
-            this.userId = userId;
-            this.expiry = expiry;
-        }
-
-        public String getUserId() { return userId; }
-        public LocalDateTime getExpiry() { return expiry; }
-    }
 }
@@ -1,22 +1,54 @@
 package org.example.insuredperson.Service;
 
-import io.jsonwebtoken.Claims;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Security.JwtPrincipal;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String SECRET_KEY; // stored in application.properties or .env
+    private final Key signingKey;
+    private final JwtParser parser;   // immutable and thread-safe, so built once
+
+    // Verified claims by SHA-256 of the token, each entry living exactly until the token's exp.
+    // A client re-presents the same token for its whole lifetime, so hits skip Base64, JSON parsing and the HMAC
+    private final Cache<ByteBuffer, JwtPrincipal> verifiedTokens;
+
+    // jwt.secret is stored in application.properties or .env, Base64 encoded
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize,
+                      MeterRegistry meterRegistry) {
+        this.signingKey = new SecretKeySpec(Decoders.BASE64.decode(secretKey), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .recordStats()
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+        // jwt.verified-tokens cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
 
     // Generate token with custom claims
     public String generateToken(InsuredPerson person) {
@@ -31,42 +63,51 @@ public class JwtService {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(person.getPolicyNumber()) // sub = policyNumber
+                .setId(UUID.randomUUID().toString())  // jti, for revocation
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 5)) // 5 min expiry
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // Validate token and extract policyNumber (subject)
-    public String validateTokenAndGetUserId(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(SECRET_KEY)
-                    .parseClaimsJws(token)
-                    .getBody();
+    // Verify signature and expiry; throws JwtException for anything invalid
+    public JwtPrincipal parseToken(String token) {
+        return JwtPrincipal.from(parser.parseClaimsJws(token).getBody());
+    }
 
-            return claims.getSubject(); // policyNumber
+    // Validate token and return its claims, or null when invalid/expired
+    public JwtPrincipal authenticate(String token) {
+        ByteBuffer key = ByteBuffer.wrap(ContentHash.newDigest().digest(token.getBytes(StandardCharsets.US_ASCII)));
+        JwtPrincipal cached = verifiedTokens.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        JwtPrincipal principal;
+        try {
+            principal = parseToken(token);
         } catch (Exception e) {
-            return null; // invalid/expired
+            return null;    // failures are not cached: they are rare and cannot be allowed to evict good entries
         }
+        if (principal.getExpiresAt() != null) {
+            verifiedTokens.put(key, principal);
+        }
+        return principal;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> resolver) {
-        return resolver.apply(extractAllClaims(token));
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(SECRET_KEY)
-                .parseClaimsJws(token)
-                .getBody();
-    }
+    private static class UntilTokenExpiry implements Expiry<ByteBuffer, JwtPrincipal> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, JwtPrincipal principal, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), principal.getExpiresAt()).toNanos());
+        }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
 
-    public String extractUserRole(String token) {
-        return (String) extractClaim(token, claims -> claims.get("role"));
+        @Override
+        public long expireAfterRead(ByteBuffer key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
-}
\ No newline at end of file
+}
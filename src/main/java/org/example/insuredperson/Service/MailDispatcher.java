@@ -0,0 +1,159 @@
+package org.example.insuredperson.Service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.example.insuredperson.Entity.OutboxMail;
+import org.example.insuredperson.Repo.OutboxMailRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+//Drains the mail outbox in the background. A batch is claimed in a short transaction that pushes
+//nextAttemptAt out by a lease, then handed to SmtpMailDelivery in one go with no transaction or row lock held;
+//if this instance dies mid-send the lease runs out and another one retries (at-least-once). Failures back off exponentially.
+//Mails past their expiry are dropped instead of sent, and FAILED rows lose their body and are deleted after a retention period
+@Service
+public class MailDispatcher {
+
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final OutboxMailRepository repository;
+    private final SmtpMailDelivery delivery;
+    private final TransactionTemplate transactionTemplate;
+    private final String fromEmail;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration lease;
+    private final Duration failedRetention;
+
+    public MailDispatcher(OutboxMailRepository repository, SmtpMailDelivery delivery,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.mail.from}") String fromEmail,
+                          @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                          @Value("${app.mail.outbox.max-attempts:8}") int maxAttempts,
+                          @Value("${app.mail.outbox.initial-backoff:PT30S}") Duration initialBackoff,
+                          @Value("${app.mail.outbox.lease:PT5M}") Duration lease,
+                          @Value("${app.mail.outbox.failed-retention:P7D}") Duration failedRetention) {
+        this.repository = repository;
+        this.delivery = delivery;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fromEmail = fromEmail;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.lease = lease;
+        this.failedRetention = failedRetention;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:PT5S}")
+    public void dispatch() {
+        List<OutboxMail> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    private List<OutboxMail> claimBatch() {
+        Instant now = Instant.now();
+        return transactionTemplate.execute(status -> {
+            List<OutboxMail> due = repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                    OutboxMail.Status.PENDING, now, Limit.of(batchSize));
+            List<OutboxMail> claimed = new ArrayList<>(due.size());
+            for (OutboxMail mail : due) {
+                if (mail.isExpired(now)) {
+                    repository.delete(mail);
+                    continue;
+                }
+                mail.setAttempts(mail.getAttempts() + 1);
+                mail.setNextAttemptAt(now.plus(lease));
+                claimed.add(mail);
+            }
+            return claimed;
+        });
+    }
+
+    private void send(List<OutboxMail> batch) {
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        List<OutboxMail> built = new ArrayList<>(batch.size());
+        for (OutboxMail mail : batch) {
+            try {
+                messages.add(toMessage(mail));
+                built.add(mail);
+            } catch (MessagingException e) {
+                failed(mail, e);   // a bad address will not get better; it uses up its attempts like any failure
+            }
+        }
+
+        List<Exception> results = delivery.send(messages);
+        List<Long> sentIds = new ArrayList<>(built.size());
+        for (int i = 0; i < built.size(); i++) {
+            if (results.get(i) == null) {
+                sentIds.add(built.get(i).getId());
+            } else {
+                failed(built.get(i), results.get(i));
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            repository.deleteAllByIdInBatch(sentIds);
+        }
+    }
+
+    private MimeMessage toMessage(OutboxMail mail) throws MessagingException {
+        MimeMessage message = delivery.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom(fromEmail);
+        helper.setTo(mail.getRecipient());
+        helper.setSubject(mail.getSubject());
+        helper.setText(mail.getBody());
+        return message;
+    }
+
+    private void failed(OutboxMail mail, Exception e) {
+        mail.setLastError(truncate(e.getMessage()));
+        if (mail.getAttempts() >= maxAttempts) {
+            mail.setStatus(OutboxMail.Status.FAILED);
+            mail.setBody("");   // kept for inspection, but not the content: it may hold a reset code
+            System.out.println("Giving up on mail " + mail.getId() + " to " + mail.getRecipient() + ": " + e.getMessage());
+        } else {
+            mail.setNextAttemptAt(Instant.now().plus(backoff(mail.getAttempts())));
+        }
+        repository.save(mail);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.outbox.cleanup-interval:PT5M}")
+    public void purge() {
+        Instant now = Instant.now();
+        int expired = repository.deleteExpired(now);
+        int failed = repository.deleteByStatusCreatedBefore(OutboxMail.Status.FAILED, now.minus(failedRetention));
+        if (expired + failed > 0) {
+            System.out.println("Removed " + expired + " expired and " + failed + " failed outbox mails");
+        }
+    }
+
+    // 30s, 1m, 2m, 4m ... capped at an hour
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Entity.OutboxMail;
+import org.example.insuredperson.Repo.OutboxMailRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+//Queues a mail for MailDispatcher. Called inside the caller's transaction, so the mail exists
+//exactly when the change it describes was committed, and the request never waits on SMTP
+@Service
+public class MailOutbox {
+
+    private final OutboxMailRepository repository;
+    private final MailTemplates mailTemplates;
+
+    public MailOutbox(OutboxMailRepository repository, MailTemplates mailTemplates) {
+        this.repository = repository;
+        this.mailTemplates = mailTemplates;
+    }
+
+    // Renders one of the MailTemplates in the recipient's language (null: the default) and queues it
+    public void enqueue(String recipient, Locale locale, String template, Map<String, ?> variables) {
+        MailTemplates.Message message = mailTemplates.render(template, locale, variables);
+        enqueue(recipient, message.getSubject(), message.getBody());
+    }
+
+    // For mails carrying a one-time code: dropped unsent once validFor has passed, since the code is useless by then
+    public void enqueue(String recipient, Locale locale, String template, Map<String, ?> variables, Duration validFor) {
+        MailTemplates.Message message = mailTemplates.render(template, locale, variables);
+        repository.save(new OutboxMail(recipient, message.getSubject(), message.getBody(), Instant.now().plus(validFor)));
+    }
+
+    public void enqueue(String recipient, String subject, String body) {
+        repository.save(new OutboxMail(recipient, subject, body));
+    }
+}
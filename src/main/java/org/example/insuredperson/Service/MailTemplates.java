@@ -0,0 +1,187 @@
+package org.example.insuredperson.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//Notification texts from templates/mail/<name>[_<language>].txt: a "Subject:" line, a blank line, then the body,
+//with {{variable}} placeholders. Each file is parsed once at startup into literal and variable segments
+//(application constants such as {{portalUrl}} are folded into the literals), so sending only appends
+//segments to a per-thread StringBuilder
+@Service
+public class MailTemplates {
+
+    public static final String WELCOME = "welcome";
+    public static final String DETAILS_UPDATED = "details-updated";
+    public static final String PASSWORD_RESET = "password-reset";
+
+    private static final String SUBJECT_PREFIX = "Subject:";
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    // name -> (language -> template); "" is the default variant
+    private final Map<String, Map<String, Template>> templates = new HashMap<>();
+    private final Locale defaultLocale;
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    public static final class Message {
+        private final String subject;
+        private final String body;
+
+        public Message(String subject, String body) {
+            this.subject = subject;
+            this.body = body;
+        }
+
+        public String getSubject() { return subject; }
+        public String getBody() { return body; }
+    }
+
+    public MailTemplates(@Value("${app.mail.template-location:classpath:templates/mail/}") String location,
+                         @Value("${app.mail.default-locale:en}") String defaultLocale,
+                         @Value("${app.mail.portal-url:http://localhost:3000}") String portalUrl) throws IOException {
+        this.defaultLocale = Locale.forLanguageTag(defaultLocale);
+        Map<String, String> constants = Map.of("portalUrl", portalUrl);
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "*.txt");
+        for (Resource resource : resources) {
+            String fileName = resource.getFilename();
+            String baseName = fileName.substring(0, fileName.length() - ".txt".length());
+            int underscore = baseName.lastIndexOf('_');
+            String name = underscore < 0 ? baseName : baseName.substring(0, underscore);
+            String language = underscore < 0 ? "" : Locale.forLanguageTag(baseName.substring(underscore + 1)).getLanguage();
+            String source;
+            try (InputStream in = resource.getInputStream()) {
+                source = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            templates.computeIfAbsent(name, n -> new HashMap<>()).put(language, Template.parse(fileName, source, constants));
+        }
+        for (String required : List.of(WELCOME, DETAILS_UPDATED, PASSWORD_RESET)) {
+            if (!templates.containsKey(required) || !templates.get(required).containsKey("")) {
+                throw new IllegalStateException("Missing mail template " + location + required + ".txt");
+            }
+        }
+    }
+
+    public Message render(String name, Map<String, ?> variables) {
+        return render(name, defaultLocale, variables);
+    }
+
+    // A null locale (recipient without a preference) gets the default-locale variant
+    public Message render(String name, Locale locale, Map<String, ?> variables) {
+        Template template = lookup(name, locale);
+        StringBuilder buffer = buffers.get();
+        try {
+            buffer.setLength(0);
+            template.subject.renderTo(buffer, variables);
+            String subject = buffer.toString();
+            buffer.setLength(0);
+            template.body.renderTo(buffer, variables);
+            return new Message(subject, buffer.toString());
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+                buffers.remove();   // one huge message should not pin a huge buffer on this thread
+            }
+        }
+    }
+
+    // For callers that assemble several messages into a buffer of their own
+    public void renderBody(String name, Locale locale, Map<String, ?> variables, StringBuilder out) {
+        lookup(name, locale).body.renderTo(out, variables);
+    }
+
+    private Template lookup(String name, Locale locale) {
+        Map<String, Template> variants = templates.get(name);
+        if (variants == null) {
+            throw new IllegalArgumentException("Unknown mail template: " + name);
+        }
+        Template template = variants.get((locale != null ? locale : defaultLocale).getLanguage());
+        return template != null ? template : variants.get("");
+    }
+
+    private static final class Template {
+        private final Segments subject;
+        private final Segments body;
+
+        private Template(Segments subject, Segments body) {
+            this.subject = subject;
+            this.body = body;
+        }
+
+        static Template parse(String fileName, String source, Map<String, String> constants) {
+            source = source.replace("\r\n", "\n");
+            int headerEnd = source.indexOf("\n\n");
+            if (!source.startsWith(SUBJECT_PREFIX) || headerEnd < 0) {
+                throw new IllegalStateException(fileName + ": expected a \"Subject:\" line followed by a blank line");
+            }
+            String body = source.substring(headerEnd + 2);
+            if (body.endsWith("\n")) {
+                body = body.substring(0, body.length() - 1);
+            }
+            return new Template(
+                    Segments.parse(fileName, source.substring(SUBJECT_PREFIX.length(), headerEnd).trim(), constants),
+                    Segments.parse(fileName, body, constants));
+        }
+    }
+
+    // literals[i] is followed by variables[i]; there is one more literal than variables
+    private static final class Segments {
+        private final String[] literals;
+        private final String[] variables;
+
+        private Segments(String[] literals, String[] variables) {
+            this.literals = literals;
+            this.variables = variables;
+        }
+
+        static Segments parse(String fileName, String text, Map<String, String> constants) {
+            List<String> literals = new ArrayList<>();
+            List<String> variables = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int pos = 0;
+            while (true) {
+                int open = text.indexOf("{{", pos);
+                if (open < 0) {
+                    literal.append(text, pos, text.length());
+                    break;
+                }
+                int close = text.indexOf("}}", open + 2);
+                if (close < 0) {
+                    throw new IllegalStateException(fileName + ": unclosed {{ at offset " + open);
+                }
+                literal.append(text, pos, open);
+                String variable = text.substring(open + 2, close).trim();
+                String constant = constants.get(variable);
+                if (constant != null) {
+                    literal.append(constant);
+                } else {
+                    literals.add(literal.toString());
+                    variables.add(variable);
+                    literal.setLength(0);
+                }
+                pos = close + 2;
+            }
+            literals.add(literal.toString());
+            return new Segments(literals.toArray(new String[0]), variables.toArray(new String[0]));
+        }
+
+        void renderTo(StringBuilder out, Map<String, ?> values) {
+            out.append(literals[0]);
+            for (int i = 0; i < variables.length; i++) {
+                Object value = values.get(variables[i]);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing mail template variable: " + variables[i]);
+                }
+                out.append(value).append(literals[i + 1]);
+            }
+        }
+    }
+}
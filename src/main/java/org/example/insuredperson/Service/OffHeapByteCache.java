@@ -0,0 +1,294 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.ServletResponseWrapper;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+//Small, hot, rarely changing blobs (profile pictures) kept outside the Java heap, so thousands of avatars
+//don't sit in the old generation. Memory is direct ByteBuffer slabs, allocated as needed up to max-bytes and cut into
+//fixed-size blocks; an entry owns as many blocks as it needs, and the least recently used entries give theirs back.
+//Each entry carries a version (the content hash) so a changed picture is never served from here
+@Service
+public class OffHeapByteCache {
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int maxSlabs;
+    private final long maxEntrySize;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int[] freeBlocks = new int[0];
+    private int freeCount;
+
+    // access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter directWrites;
+    private final Counter copiedWrites;
+
+    private static final class Entry {
+        final String version;
+        final String contentType;
+        final int length;
+        final int[] blocks;
+        int references;
+        boolean removed;
+
+        Entry(String version, String contentType, int length, int[] blocks) {
+            this.version = version;
+            this.contentType = contentType;
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+
+    public OffHeapByteCache(MeterRegistry meterRegistry,
+                            @Value("${app.offheap-cache.max-bytes:64MB}") DataSize maxBytes,
+                            @Value("${app.offheap-cache.slab-size:4MB}") DataSize slabSize,
+                            @Value("${app.offheap-cache.block-size:4KB}") DataSize blockSize,
+                            @Value("${app.offheap-cache.max-entry-size:1MB}") DataSize maxEntrySize) {
+        this.blockSize = (int) blockSize.toBytes();
+        this.blocksPerSlab = (int) Math.max(1, slabSize.toBytes() / this.blockSize);
+        this.maxSlabs = (int) (maxBytes.toBytes() / ((long) blocksPerSlab * this.blockSize));
+        this.maxEntrySize = Math.min(maxEntrySize.toBytes(), (long) maxSlabs * blocksPerSlab * this.blockSize);
+
+        // offheap.cache.gets{result=hit|miss}, offheap.cache.evictions, offheap.cache.writes{path=direct|copied},
+        // offheap.cache.used (bytes of entries), offheap.cache.allocated (direct memory held by slabs), offheap.cache.size (entries)
+        this.hits = Counter.builder("offheap.cache.gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("offheap.cache.gets").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("offheap.cache.evictions").register(meterRegistry);
+        this.directWrites = Counter.builder("offheap.cache.writes").tag("path", "direct").register(meterRegistry);
+        this.copiedWrites = Counter.builder("offheap.cache.writes").tag("path", "copied").register(meterRegistry);
+        Gauge.builder("offheap.cache.used", this, OffHeapByteCache::usedBytes).register(meterRegistry);
+        Gauge.builder("offheap.cache.allocated", this, OffHeapByteCache::allocatedBytes).register(meterRegistry);
+        Gauge.builder("offheap.cache.size", this, OffHeapByteCache::size).register(meterRegistry);
+    }
+
+    // A pinned entry: its blocks are not reused until it is closed, even if it is evicted meanwhile
+    public final class Handle implements AutoCloseable {
+        private final Entry entry;
+        private boolean closed;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        public String getContentType() {
+            return entry.contentType;
+        }
+
+        public int getLength() {
+            return entry.length;
+        }
+
+        // Tomcat's output stream takes a ByteBuffer, so the bytes go from the slab into the connector's buffer without
+        // an intermediate heap array. Filters (Spring Security's header writer among them) wrap the response, so that
+        // stream is taken from the innermost response; the wrappers are flushed first, so they see the commit and write
+        // their headers. The Content-Length must already be set
+        public void writeTo(ServletResponse response) throws IOException {
+            ServletResponse inner = response;
+            while (inner instanceof ServletResponseWrapper wrapper) {
+                inner = wrapper.getResponse();
+            }
+            if (!(inner.getOutputStream() instanceof CoyoteOutputStream coyote)) {
+                writeTo(response.getOutputStream());
+                return;
+            }
+            response.flushBuffer();
+            for (int i = 0; i < entry.blocks.length; i++) {
+                coyote.write(block(entry, i));
+            }
+            directWrites.increment();
+        }
+
+        // Any other stream gets the bytes through a small chunk buffer
+        public void writeTo(OutputStream out) throws IOException {
+            copiedWrites.increment();
+            byte[] chunk = new byte[blockSize];
+            for (int i = 0; i < entry.blocks.length; i++) {
+                ByteBuffer block = block(entry, i);
+                int n = block.remaining();
+                block.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(entry);
+            }
+        }
+    }
+
+    // The entry for key if it is at this version, pinned until the handle is closed; null on a miss
+    public Handle acquire(String key, String version) {
+        if (version == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || !entry.version.equals(version)) {
+                if (entry != null) {
+                    remove(key, entry);
+                }
+                misses.increment();
+                return null;
+            }
+            entry.references++;
+            hits.increment();
+            return new Handle(entry);
+        }
+    }
+
+    // Copies data off-heap; returns false when it is too large or everything that could make room is pinned
+    public boolean put(String key, String version, String contentType, byte[] data) {
+        if (version == null || data.length == 0 || data.length > maxEntrySize) {
+            return false;
+        }
+        int needed = (data.length + blockSize - 1) / blockSize;
+        int[] blocks;
+        synchronized (this) {
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                if (previous.version.equals(version)) {
+                    return true;
+                }
+                remove(key, previous);
+            }
+            blocks = allocate(needed);
+            if (blocks == null) {
+                return false;
+            }
+        }
+        // the blocks belong to nobody else yet, so the copy happens outside the lock
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, data.length - offset);
+            slab(blocks[i]).put(offsetInSlab(blocks[i]), data, offset, length);
+        }
+        Entry entry = new Entry(version, contentType, data.length, blocks);
+        synchronized (this) {
+            Entry raced = entries.put(key, entry);
+            if (raced != null) {
+                raced.removed = true;
+                usedBytes -= raced.length;
+                freeIfUnused(raced);
+            }
+            usedBytes += entry.length;
+        }
+        return true;
+    }
+
+    public synchronized void invalidate(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long allocatedBytes() {
+        return (long) slabs.size() * blocksPerSlab * blockSize;
+    }
+
+    // Free blocks first, then a new slab while the budget allows, then the least recently used entries
+    private int[] allocate(int needed) {
+        while (freeCount < needed && slabs.size() < maxSlabs) {
+            addSlab();
+        }
+        Iterator<Entry> lru = entries.values().iterator();
+        while (freeCount < needed && lru.hasNext()) {
+            Entry eldest = lru.next();
+            if (eldest.references > 0) {
+                continue;   // being written to a client right now
+            }
+            lru.remove();
+            eldest.removed = true;
+            usedBytes -= eldest.length;
+            freeIfUnused(eldest);
+            evictions.increment();
+        }
+        if (freeCount < needed) {
+            return null;
+        }
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        return blocks;
+    }
+
+    private void addSlab() {
+        int first = slabs.size() * blocksPerSlab;
+        slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+        int[] grown = new int[freeBlocks.length + blocksPerSlab];
+        System.arraycopy(freeBlocks, 0, grown, 0, freeCount);
+        for (int i = blocksPerSlab - 1; i >= 0; i--) {
+            grown[freeCount++] = first + i;
+        }
+        freeBlocks = grown;
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        entry.removed = true;
+        usedBytes -= entry.length;
+        freeIfUnused(entry);
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.references--;
+        freeIfUnused(entry);
+    }
+
+    private void freeIfUnused(Entry entry) {
+        if (entry.removed && entry.references == 0) {
+            for (int block : entry.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+        }
+    }
+
+    // A read-only view of the i-th block of an entry, limited to the bytes it holds
+    private ByteBuffer block(Entry entry, int i) {
+        int length = Math.min(blockSize, entry.length - i * blockSize);
+        return slab(entry.blocks[i]).slice(offsetInSlab(entry.blocks[i]), length).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer slab(int block) {
+        synchronized (this) {
+            return slabs.get(block / blocksPerSlab);
+        }
+    }
+
+    private int offsetInSlab(int block) {
+        return (block % blocksPerSlab) * blockSize;
+    }
+}
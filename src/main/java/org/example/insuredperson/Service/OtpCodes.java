@@ -0,0 +1,16 @@
+package org.example.insuredperson.Service;
+
+import java.security.SecureRandom;
+
+//The one SecureRandom every OtpStore draws its codes from
+final class OtpCodes {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private OtpCodes() {
+    }
+
+    static String next() {
+        return String.format("%06d", RANDOM.nextInt(1_000_000));
+    }
+}
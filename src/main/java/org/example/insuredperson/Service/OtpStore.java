@@ -0,0 +1,19 @@
+package org.example.insuredperson.Service;
+
+import java.time.Duration;
+
+//Short-lived one-time codes (password reset OTPs). A code belongs to one subject and purpose: it is only ever
+//checked against the subject it was issued to, so guessing is limited to one account at a time and throttled per account.
+//A subject has at most one live code per purpose, and a code can be consumed once. Backends: in-memory (single instance)
+//and database (shared by every replica), picked with app.otp.store
+public interface OtpStore {
+
+    // Returns a fresh 6-digit code for the subject, replacing any code it already had for this purpose
+    String issue(String purpose, String subject, Duration ttl);
+
+    // True if the code is the subject's live code for this purpose
+    boolean matches(String purpose, String subject, String code);
+
+    // Atomically invalidates the subject's code; true for exactly one caller, and only while it is live
+    boolean consume(String purpose, String subject, String code);
+}
@@ -0,0 +1,188 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//BCrypt runs on its own fixed pool (one thread per core) behind a bounded queue, so a login burst
+//can use at most that much CPU; anything beyond the queue is turned away with a 503 straight away.
+//Bulk imports hash on the same pool but never hold more than half of it, and wait for room instead of failing
+@Service
+public class PasswordHashingService {
+
+    private static final long BATCH_RETRY_MILLIS = 20;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore batchSlots;
+    private final long maxWaitNanos;
+    private final Timer waitTimer;
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                                  @Value("${app.password-hashing.threads:0}") int threads,
+                                  @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${app.password-hashing.max-wait:PT2S}") Duration maxWait) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitNanos = maxWait.toNanos();
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.batchSlots = new Semaphore(Math.max(1, poolSize / 2));
+
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Hashes waiting for a pool thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("password.hashing.wait")
+                .description("Time a hash spent queued before a pool thread picked it up")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("password.hashing.duration").register(meterRegistry);
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Requests turned away because the pool and its queue were full")
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    // Hashes in input order. At most half the pool works on a batch at once, so sign-ins keep the other half;
+    // a batch hash that finds the queue full waits for room rather than taking a 503
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                futures.add(submitBatch(timed(() -> passwordEncoder.encode(rawPassword))));
+            }
+            List<String> encoded = new ArrayList<>(futures.size());
+            for (Future<String> future : futures) {
+                try {
+                    encoded.add(future.get());
+                } catch (ExecutionException e) {
+                    throw rethrow(e);
+                }
+            }
+            return encoded;
+        } catch (InterruptedException e) {
+            // hashes already submitted finish on their own and hand their slots back
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        }
+    }
+
+    private <T> Future<T> submitBatch(Callable<T> task) throws InterruptedException {
+        batchSlots.acquire();
+        Callable<T> releasing = () -> {
+            try {
+                return task.call();
+            } finally {
+                batchSlots.release();
+            }
+        };
+        try {
+            while (true) {
+                try {
+                    return executor.submit(releasing);
+                } catch (RejectedExecutionException e) {
+                    if (executor.isShutdown()) {
+                        throw new IllegalStateException("Password hashing pool is shut down", e);
+                    }
+                    Thread.sleep(BATCH_RETRY_MILLIS);
+                }
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            batchSlots.release();
+            throw e;
+        }
+    }
+
+    private <T> Callable<T> timed(Supplier<T> work) {
+        long enqueuedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+            try {
+                return work.get();
+            } finally {
+                hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private <T> T run(Supplier<T> work) {
+        Future<T> future;
+        try {
+            future = executor.submit(timed(work));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new CustomExceptions.ServiceUnavailableException("Too many sign-in requests, please retry shortly");
+        }
+
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // still queued (or nearly done); either way the caller has waited long enough
+            future.cancel(false);
+            rejected.increment();
+            throw new CustomExceptions.ServiceUnavailableException("Too many sign-in requests, please retry shortly");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CustomExceptions.ServiceUnavailableException("Password check interrupted");
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    // the encoder's own exception, so callers see the same failure as on the calling thread
+    private static RuntimeException rethrow(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Per-key token buckets for the public endpoints that start expensive work (BCrypt, SMTP, multipart parsing).
+//Each bucket is a single AtomicLong holding its "theoretical arrival time" (GCRA): a request either advances it
+//with one CAS or is refused, so there are no locks, no refill thread, and a full bucket needs no state at all
+@Service
+public class RateLimiter {
+
+    public static final String LOGIN_IP = "login.per-ip";
+    public static final String LOGIN_USER = "login.per-user";
+    public static final String FORGOT_PASSWORD_IP = "forgot-password.per-ip";
+    public static final String FORGOT_PASSWORD_USER = "forgot-password.per-user";
+    public static final String RESET_PASSWORD_IP = "reset-password.per-ip";
+    public static final String RESET_PASSWORD_USER = "reset-password.per-user";
+    public static final String REGISTER_IP = "register.per-ip";
+
+    private final boolean enabled;
+    private final Map<String, Limit> limits;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(@Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.login.per-ip:20/PT1M}") String loginPerIp,
+                       @Value("${app.rate-limit.login.per-user:5/PT1M}") String loginPerUser,
+                       @Value("${app.rate-limit.forgot-password.per-ip:5/PT15M}") String forgotPasswordPerIp,
+                       @Value("${app.rate-limit.forgot-password.per-user:3/PT15M}") String forgotPasswordPerUser,
+                       @Value("${app.rate-limit.reset-password.per-ip:10/PT15M}") String resetPasswordPerIp,
+                       @Value("${app.rate-limit.reset-password.per-user:5/PT15M}") String resetPasswordPerUser,
+                       @Value("${app.rate-limit.register.per-ip:10/PT1H}") String registerPerIp) {
+        this.enabled = enabled;
+        this.limits = Map.of(
+                LOGIN_IP, Limit.parse(loginPerIp),
+                LOGIN_USER, Limit.parse(loginPerUser),
+                FORGOT_PASSWORD_IP, Limit.parse(forgotPasswordPerIp),
+                FORGOT_PASSWORD_USER, Limit.parse(forgotPasswordPerUser),
+                RESET_PASSWORD_IP, Limit.parse(resetPasswordPerIp),
+                RESET_PASSWORD_USER, Limit.parse(resetPasswordPerUser),
+                REGISTER_IP, Limit.parse(registerPerIp));
+    }
+
+    // Throws 429 when the key has used up its bucket for this rule
+    public void check(String rule, String key) {
+        long waitNanos = tryAcquire(rule, key);
+        if (waitNanos > 0) {
+            throw new CustomExceptions.TooManyRequestsException("Too many requests, please retry later", retryAfterSeconds(waitNanos));
+        }
+    }
+
+    // 0 when the request may go ahead, otherwise how long until it would be allowed
+    public long tryAcquire(String rule, String key) {
+        return tryAcquire(rule, key, System.nanoTime());
+    }
+
+    public long tryAcquire(String rule, String key, long nowNanos) {
+        Limit limit = limits.get(rule);
+        if (!enabled || limit == null || limit.isUnlimited() || !StringUtils.hasText(key)) {
+            return 0;
+        }
+        AtomicLong tat = buckets.computeIfAbsent(rule + '|' + key, k -> new AtomicLong(nowNanos));
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, nowNanos) + limit.intervalNanos;
+            long excess = next - nowNanos - limit.periodNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // A bucket whose arrival time has passed is full again and identical to a missing one, so it can go
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval:PT1M}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    public void evictIdle(long nowNanos) {
+        buckets.values().removeIf(tat -> tat.get() - nowNanos <= 0);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    // "<requests>/<ISO-8601 period>", e.g. 20/PT1M; 0 or blank switches the rule off
+    static final class Limit {
+        private final long periodNanos;
+        private final long intervalNanos;
+
+        private Limit(long requests, Duration period) {
+            this.periodNanos = period.toNanos();
+            this.intervalNanos = requests > 0 ? Math.max(1, periodNanos / requests) : 0;
+        }
+
+        boolean isUnlimited() {
+            return intervalNanos == 0;
+        }
+
+        static Limit parse(String spec) {
+            if (!StringUtils.hasText(spec) || spec.trim().equals("0")) {
+                return new Limit(0, Duration.ZERO);
+            }
+            int slash = spec.indexOf('/');
+            if (slash < 0) {
+                throw new IllegalArgumentException("Rate limit must look like 20/PT1M but was " + spec);
+            }
+            return new Limit(Long.parseLong(spec.substring(0, slash).trim()), Duration.parse(spec.substring(slash + 1).trim()));
+        }
+    }
+}
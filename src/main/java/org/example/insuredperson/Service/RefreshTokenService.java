@@ -0,0 +1,101 @@
+package org.example.insuredperson.Service;
+
+import org.example.insuredperson.Entity.RefreshToken;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+//Long-lived, single-use refresh tokens so an expired access token can be renewed without re-running BCrypt
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository repository;
+    private final Duration refreshTtl;
+
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               @Value("${app.jwt.refresh-ttl:P7D}") Duration refreshTtl) {
+        this.repository = repository;
+        this.refreshTtl = refreshTtl;
+    }
+
+    public static class Rotation {
+        private final String policyNumber;
+        private final String refreshToken;
+
+        public Rotation(String policyNumber, String refreshToken) {
+            this.policyNumber = policyNumber;
+            this.refreshToken = refreshToken;
+        }
+
+        public String getPolicyNumber() { return policyNumber; }
+        public String getRefreshToken() { return refreshToken; }
+    }
+
+    // New family, issued at login
+    public String issue(String policyNumber) {
+        return issue(policyNumber, UUID.randomUUID().toString());
+    }
+
+    // Exchanges a refresh token for its successor. A token that was already exchanged means it leaked
+    // (or the client replayed it), so the whole family is revoked and the user has to log in again
+    public Rotation rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new CustomExceptions.UnauthorizedException("Refresh token is required");
+        }
+        RefreshToken current = repository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new CustomExceptions.UnauthorizedException("Invalid refresh token"));
+        if (current.getExpiresAt().isBefore(Instant.now())) {
+            throw new CustomExceptions.UnauthorizedException("Refresh token expired, please log in again");
+        }
+        if (current.isUsed() || repository.markUsed(current.getId()) == 0) {
+            repository.deleteByFamily(current.getFamilyId());
+            throw new CustomExceptions.UnauthorizedException("Refresh token already used, please log in again");
+        }
+        return new Rotation(current.getPolicyNumber(), issue(current.getPolicyNumber(), current.getFamilyId()));
+    }
+
+    // Logout: ends this login's rotation family only, other devices stay signed in
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        repository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> repository.deleteByFamily(token.getFamilyId()));
+    }
+
+    // Password changes and account deletion end every session of the policy
+    public void revokeAll(String policyNumber) {
+        repository.deleteByPolicy(policyNumber);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-cleanup-interval:PT6H}")
+    public void removeExpired() {
+        int removed = repository.deleteExpired(Instant.now());
+        if (removed > 0) {
+            System.out.println("Removed " + removed + " expired refresh tokens");
+        }
+    }
+
+    private String issue(String policyNumber, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        repository.save(new RefreshToken(hash(rawToken), familyId, policyNumber, Instant.now().plus(refreshTtl)));
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        return ContentHash.sha256Hex(rawToken.getBytes(StandardCharsets.US_ASCII));
+    }
+}
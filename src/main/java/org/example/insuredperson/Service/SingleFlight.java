@@ -0,0 +1,77 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+//Coalesces concurrent loads of the same key: the first caller runs the loader, callers arriving while it runs
+//wait for its result instead of issuing the same query. Nothing is kept once the load finishes, so this is not a cache.
+//Every caller gets the same instance, which must therefore be treated as read-only
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter loads;
+    private final Counter coalesced;
+
+    // singleflight.calls{name, result=load|coalesced}, singleflight.in-flight{name}
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loads = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "load")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("singleflight.calls")
+                .tag("name", name)
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("singleflight.in-flight", inFlight, Map::size)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        loads.increment();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // waiters see the same exception, e.g. the 404 for a policy that does not exist
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.insuredperson.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//A small pool of SMTP sessions that stay connected between batches. JavaMailSender.send connects,
+//runs STARTTLS and AUTH for every call; here that handshake happens once per session and a batch
+//is pushed down already-open connections, split across the pool
+@Service
+public class SmtpMailDelivery {
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingQueue<PooledTransport> pool;
+    private final ExecutorService executor;
+    private final int poolSize;
+    private final long keepAliveNanos;
+
+    private final Timer sendTimer;
+    private final Timer batchTimer;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter connects;
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private long lastUsed;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    public SmtpMailDelivery(JavaMailSenderImpl mailSender, MeterRegistry meterRegistry,
+                            @Value("${app.mail.smtp.pool-size:2}") int poolSize,
+                            @Value("${app.mail.smtp.keep-alive:PT1M}") Duration keepAlive) throws NoSuchProviderException {
+        this.mailSender = mailSender;
+        this.poolSize = poolSize;
+        this.keepAliveNanos = keepAlive.toNanos();
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        // same fallback as JavaMailSenderImpl.getTransport: the protocol is only set when configured
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        if (protocol == null) {
+            protocol = "smtp";
+        }
+        for (int i = 0; i < poolSize; i++) {
+            pool.add(new PooledTransport(mailSender.getSession().getTransport(protocol)));
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "smtp-delivery-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.sendTimer = Timer.builder("mail.smtp.send").description("Time to hand one message to the SMTP server").register(meterRegistry);
+        this.batchTimer = Timer.builder("mail.smtp.batch").register(meterRegistry);
+        this.sent = Counter.builder("mail.smtp.sent").register(meterRegistry);
+        this.failed = Counter.builder("mail.smtp.failed").register(meterRegistry);
+        this.connects = Counter.builder("mail.smtp.connects").description("SMTP connections opened (handshake + AUTH)").register(meterRegistry);
+    }
+
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    // Sends the batch; the result lists, by position, null for each accepted message or the reason it was not
+    public List<Exception> send(List<MimeMessage> messages) {
+        Exception[] results = new Exception[messages.size()];
+        long start = System.nanoTime();
+        int slices = Math.min(poolSize, messages.size());
+        if (slices <= 1) {
+            sendSlice(messages, 0, messages.size(), results);
+        } else {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(slices);
+            int sliceSize = (messages.size() + slices - 1) / slices;
+            for (int from = 0; from < messages.size(); from += sliceSize) {
+                int begin = from;
+                int end = Math.min(from + sliceSize, messages.size());
+                futures.add(CompletableFuture.runAsync(() -> sendSlice(messages, begin, end, results), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Arrays.asList(results);
+    }
+
+    private void sendSlice(List<MimeMessage> messages, int from, int to, Exception[] results) {
+        PooledTransport pooled;
+        try {
+            pooled = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Arrays.fill(results, from, to, e);
+            return;
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                results[i] = sendOne(pooled, messages.get(i));
+            }
+            pooled.lastUsed = System.nanoTime();
+        } finally {
+            pool.add(pooled);
+        }
+    }
+
+    private Exception sendOne(PooledTransport pooled, MimeMessage message) {
+        long start = System.nanoTime();
+        try {
+            try {
+                ensureConnected(pooled);
+                transmit(pooled, message);
+            } catch (MessagingException e) {
+                // the server may have dropped an idle session since the last batch: reconnect once and retry
+                if (pooled.transport.isConnected()) {
+                    throw e;
+                }
+                ensureConnected(pooled);
+                transmit(pooled, message);
+            }
+            sent.increment();
+            return null;
+        } catch (MessagingException | RuntimeException e) {
+            failed.increment();
+            return e;
+        } finally {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void transmit(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new java.util.Date());
+        }
+        message.saveChanges();
+        pooled.transport.sendMessage(message, message.getAllRecipients());
+    }
+
+    private void ensureConnected(PooledTransport pooled) throws MessagingException {
+        if (pooled.transport.isConnected()) {
+            return;
+        }
+        String username = mailSender.getUsername();
+        String password = mailSender.getPassword();
+        if ("".equals(username)) {
+            username = null;
+            if ("".equals(password)) {
+                password = null;
+            }
+        }
+        pooled.transport.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+        connects.increment();
+    }
+
+    // Sessions idle longer than the keep-alive are closed rather than left for the server to time out
+    @Scheduled(fixedDelayString = "${app.mail.smtp.keep-alive:PT1M}")
+    public void closeIdle() {
+        long now = System.nanoTime();
+        for (int i = 0; i < poolSize; i++) {
+            PooledTransport pooled = pool.poll();
+            if (pooled == null) {
+                return;   // the rest are busy sending
+            }
+            if (pooled.transport.isConnected() && now - pooled.lastUsed > keepAliveNanos) {
+                close(pooled);
+            }
+            pool.add(pooled);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        PooledTransport pooled;
+        while ((pooled = pool.poll()) != null) {
+            close(pooled);
+        }
+    }
+
+    private static void close(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            System.out.println("Failed to close SMTP session: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.insuredperson.Service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Revoked access tokens (by jti) until they expire on their own.
+//Every authenticated request asks isRevoked, so the common "no" comes from a Bloom filter without allocating or locking;
+//only a filter hit consults the exact set. The set is appended to a local file so revocations survive a restart
+@Service
+public class TokenRevocationService {
+
+    private final Path file;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    // jti -> exp (epoch seconds)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    public TokenRevocationService(@Value("${app.jwt.revocation.file:./data/revoked-tokens.log}") String file,
+                                  @Value("${app.jwt.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${app.jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) throws IOException {
+        this.file = Paths.get(file).toAbsolutePath().normalize();
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        load();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(tokenId);
+        return expiresAt != null && expiresAt > Instant.now().getEpochSecond();
+    }
+
+    // Writers are rare (logout); the lock keeps them from racing a prune that swaps the filter
+    public synchronized void revoke(String tokenId, Instant expiresAt) throws IOException {
+        if (tokenId == null || expiresAt == null || !expiresAt.isAfter(Instant.now()) || revoked.containsKey(tokenId)) {
+            return;
+        }
+        long exp = expiresAt.getEpochSecond();
+        Files.writeString(file, tokenId + " " + exp + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        revoked.put(tokenId, exp);
+        filter.put(tokenId);
+    }
+
+    // A Bloom filter cannot forget, so expired tokens are dropped by rebuilding it (and compacting the file)
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.prune-interval:PT1M}")
+    public synchronized void prune() throws IOException {
+        long now = Instant.now().getEpochSecond();
+        if (!revoked.values().removeIf(exp -> exp <= now)) {
+            return;
+        }
+        filter = rebuildFilter();
+        rewriteFile();
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private void rewriteFile() throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : revoked.entrySet()) {
+                writer.write(entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(file.getParent());
+        if (Files.exists(file)) {
+            long now = Instant.now().getEpochSecond();
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                int space = line.lastIndexOf(' ');
+                if (space <= 0) {
+                    continue;   // torn last line after a crash
+                }
+                try {
+                    long exp = Long.parseLong(line.substring(space + 1).trim());
+                    if (exp > now) {
+                        revoked.put(line.substring(0, space), exp);
+                    }
+                } catch (NumberFormatException e) {
+                    // torn last line after a crash
+                }
+            }
+            if (revoked.size() < lines.size()) {
+                rewriteFile();  // start from a compact file
+            }
+        }
+        filter = rebuildFilter();
+    }
+
+    private BloomFilter rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size()), falsePositiveRate);
+        for (String tokenId : revoked.keySet()) {
+            rebuilt.put(tokenId);
+        }
+        return rebuilt;
+    }
+
+    static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate) {
+            long m = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+            this.bits = new AtomicLongArray((int) (bitCount / 64));
+        }
+
+        void put(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a over the chars with a murmur3 finalizer; reads the String in place, no byte[] copy
+        private static long hash64(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
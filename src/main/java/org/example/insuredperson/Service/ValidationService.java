@@ -3,6 +3,8 @@ package org.example.insuredperson.Service;
 import org.example.insuredperson.Exception.CustomExceptions;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+
 @Service
 public class ValidationService {
 
@@ -40,4 +42,28 @@ public class ValidationService {
         }
     }
 
+    // A BCP 47 tag such as "de" or "de-DE"; the field is optional
+    public void validateLanguage(String language) {
+        if (language != null && (language.length() > 8 || Locale.forLanguageTag(language).getLanguage().isEmpty())) {
+            throw new CustomExceptions.ValidationException(
+                    "Preferred language must be a language tag such as \"en\" or \"de\"");
+        }
+    }
+
+    // Same rule as the @Pattern on InsuredPerson.phoneNumber; the field is optional
+    public void validatePhoneNumber(String phoneNumber) {
+        if (phoneNumber != null && !phoneNumber.matches("^[2-9][0-9]{9}$")) {
+            throw new CustomExceptions.ValidationException(
+                    "Phone number must be 10 digits and start with digits 2-9");
+        }
+    }
+
+    // Same rule as the @Pattern on InsuredPerson.zipcode; the field is optional
+    public void validateZipcode(String zipcode) {
+        if (zipcode != null && !zipcode.matches("^[0-9]{5}$")) {
+            throw new CustomExceptions.ValidationException(
+                    "Zip code must be exactly 5 digits");
+        }
+    }
+
 }
\ No newline at end of file
@@ -5,7 +5,11 @@ import org.example.insuredperson.DTO.LoginRequest;
 import org.example.insuredperson.DTO.InsuredPersonRequest;
 import org.example.insuredperson.Entity.InsuranceType;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.ProfilePicture;
 import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Repo.ProfilePictureRepository;
+import org.example.insuredperson.Security.JwtPrincipal;
+import org.example.insuredperson.Service.ContentHash;
 import org.example.insuredperson.Service.InsuredPersonService;
 import org.example.insuredperson.Service.JwtService;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,15 +18,19 @@ import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import java.util.List;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.Mockito.when;
 
 
@@ -40,6 +48,9 @@ class InsuredPersonControllerTest {
     @Autowired
     private InsuredPersonRepository repository;
 
+    @Autowired
+    private ProfilePictureRepository profilePictureRepository;
+
     @Mock
     private InsuredPersonService insuredPersonService;
 
@@ -59,8 +70,9 @@ class InsuredPersonControllerTest {
         when(jwtService.generateToken(org.mockito.Mockito.any()))
                 .thenReturn(jwtToken);
 
-        when(jwtService.validateTokenAndGetUserId(org.mockito.Mockito.anyString()))
-                .thenReturn(String.valueOf(true));
+        // any bearer token is accepted, with no role unless a test says otherwise
+        when(jwtService.authenticate(org.mockito.Mockito.anyString()))
+                .thenReturn(new JwtPrincipal("PA0000000", "Test@123", null, null, null));
 
     }
 
@@ -169,7 +181,7 @@ class InsuredPersonControllerTest {
         String invalidToken = "invalidToken";
 
         // Make JwtService return false for invalid token
-        when(jwtService.validateTokenAndGetUserId(invalidToken)).thenReturn(null); // or throw exception depending on your filter
+        when(jwtService.authenticate(invalidToken)).thenReturn(null);
 
         mockMvc.perform(get("/api/insuredpersons/PA7876543")
                         .header("Authorization", "Bearer " + invalidToken))
@@ -191,8 +203,7 @@ class InsuredPersonControllerTest {
 
         String rawToken = jwtToken.substring(7);
 
-        when(jwtService.validateTokenAndGetUserId(rawToken)).thenReturn(String.valueOf(true));
-        when(jwtService.extractUserRole(rawToken)).thenReturn("Admin");
+        when(jwtService.authenticate(rawToken)).thenReturn(new JwtPrincipal("PA0000001", "Admin@123", "Admin", null, null));
 
         mockMvc.perform(delete("/api/insuredpersons/{policyNumber}", policyNumber)
                         .header("Authorization", jwtToken))
@@ -206,8 +217,7 @@ class InsuredPersonControllerTest {
         String policyNumber = "NON_EXISTENT";
         String rawToken = "your-valid-admin-jwt";
 
-        when(jwtService.validateTokenAndGetUserId(rawToken)).thenReturn(String.valueOf(true));
-        when(jwtService.extractUserRole(rawToken)).thenReturn("Admin");
+        when(jwtService.authenticate(rawToken)).thenReturn(new JwtPrincipal("PA0000001", "Admin@123", "Admin", null, null));
 
         mockMvc.perform(delete("/api/insuredpersons/{policyNumber}", policyNumber)
                         .header("Authorization", "Bearer " + rawToken))
@@ -236,9 +246,7 @@ class InsuredPersonControllerTest {
         repository.save(person);
 
         // When: mocking JWT validation
-        when(jwtService.validateTokenAndGetUserId(token)).thenReturn(String.valueOf(true));
-        when(jwtService.extractUsername(token)).thenReturn(userId);
-        when(jwtService.extractUserRole(token)).thenReturn("Admin");
+        when(jwtService.authenticate(token)).thenReturn(new JwtPrincipal(policyNumber, userId, "Admin", null, null));
 
         // Then: perform GET request
         mockMvc.perform(get("/api/insuredpersons/{policyNumber}", policyNumber)
@@ -256,7 +264,7 @@ class InsuredPersonControllerTest {
         String policyNumber = "PA123456";
         String invalidToken = "invalid.jwt.token";
 
-        when(jwtService.validateTokenAndGetUserId(invalidToken)).thenReturn(String.valueOf(false));
+        when(jwtService.authenticate(invalidToken)).thenReturn(new JwtPrincipal(policyNumber, null, null, null, null));
 
         mockMvc.perform(get("/api/insuredpersons/{policyNumber}", policyNumber)
                         .header("Authorization", "Bearer " + invalidToken))
@@ -331,8 +339,8 @@ class InsuredPersonControllerTest {
         person.setFirstName("John");
         person.setEmail("john.doe@example.com");
         person.setRole("User");
-        person.setProfilePicture(imageBytes);
         repository.save(person);
+        profilePictureRepository.save(new ProfilePicture(policyNumber, MediaType.IMAGE_JPEG_VALUE, imageBytes));
 
         mockMvc.perform(get("/api/insuredpersons/profile-picture/{policyNumber}", policyNumber))
                 .andExpect(status().isOk())
@@ -340,6 +348,57 @@ class InsuredPersonControllerTest {
                 .andExpect(content().bytes(imageBytes));
     }
 
+    @Test
+    void getProfilePicture_NotModified_WhenETagMatches() throws Exception {
+        String policyNumber = "PA123457";
+        byte[] imageBytes = "fake-image-content".getBytes();
+
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber(policyNumber);
+        person.setUserId("JohnDoe@124");
+        person.setPassword(passwordEncoder.encode("StrongP@ssw0rd"));
+        person.setFirstName("John");
+        person.setEmail("john.doe2@example.com");
+        person.setRole("User");
+        repository.save(person);
+        ProfilePicture picture = new ProfilePicture(policyNumber, MediaType.IMAGE_JPEG_VALUE, imageBytes);
+        picture.setChecksum(ContentHash.sha256Hex(imageBytes));
+        profilePictureRepository.save(picture);
+        String etag = ContentHash.etag(picture.getChecksum());
+
+        mockMvc.perform(get("/api/insuredpersons/profile-picture/{policyNumber}", policyNumber))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"));
+
+        mockMvc.perform(get("/api/insuredpersons/profile-picture/{policyNumber}", policyNumber)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void getProfilePicture_PartialContent_ForRange() throws Exception {
+        String policyNumber = "PA123458";
+        byte[] imageBytes = "fake-image-content".getBytes();
+
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber(policyNumber);
+        person.setUserId("JohnDoe@125");
+        person.setPassword(passwordEncoder.encode("StrongP@ssw0rd"));
+        person.setFirstName("John");
+        person.setEmail("john.doe3@example.com");
+        person.setRole("User");
+        repository.save(person);
+        profilePictureRepository.save(new ProfilePicture(policyNumber, MediaType.IMAGE_JPEG_VALUE, imageBytes));
+
+        mockMvc.perform(get("/api/insuredpersons/profile-picture/{policyNumber}", policyNumber)
+                        .header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/" + imageBytes.length))
+                .andExpect(content().bytes("fake".getBytes()));
+    }
+
     @Test
     void getProfilePicture_NotFound_PolicyNumberMissing() throws Exception {
         String policyNumber = "NON_EXISTENT";
@@ -359,7 +418,6 @@ class InsuredPersonControllerTest {
         person.setFirstName("Jane");
         person.setEmail("jane.doe@example.com");
         person.setRole("User");
-        person.setProfilePicture(null);
         repository.save(person);
 
         mockMvc.perform(get("/api/insuredpersons/profile-picture/{policyNumber}", policyNumber))
@@ -389,8 +447,7 @@ class InsuredPersonControllerTest {
 
         // Simulate a valid admin token
         String adminToken = "VALID_ADMIN_TOKEN";
-        when(jwtService.validateTokenAndGetUserId(adminToken)).thenReturn("SomeUserId");
-        when(jwtService.extractUserRole(adminToken)).thenReturn("Admin");
+        when(jwtService.authenticate(adminToken)).thenReturn(new JwtPrincipal("PA1001", "SomeUserId", "Admin", null, null));
         // Act & Assert
         mockMvc.perform(get("/api/insuredpersons")
                         .header("Authorization","Bearer "+ adminToken)
@@ -409,4 +466,57 @@ class InsuredPersonControllerTest {
     }
 
 
+    @Test
+    void exportAll_AdminGetsCsv() throws Exception {
+        // PA123456 is the person the other tests save too, so the table keeps the same rows
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber("PA123456");
+        person.setUserId("JohnDoe@123");
+        person.setPassword(passwordEncoder.encode("StrongP@ssw0rd"));
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.setEmail("john.doe@example.com");
+        person.setRole("User");
+        repository.save(person);
+
+        String adminToken = "VALID_ADMIN_TOKEN";
+        when(jwtService.authenticate(adminToken)).thenReturn(new JwtPrincipal("PA1001", "SomeUserId", "Admin", null, null));
+
+        // the body is a StreamingResponseBody, written on an async dispatch
+        MvcResult started = mockMvc.perform(get("/api/insuredpersons/export")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"insured-persons.csv\""))
+                .andExpect(content().string(startsWith("policyNumber,firstName,lastName,age,userId,role,email,")))
+                .andExpect(content().string(containsString("\nPA123456,John,Doe,,JohnDoe@123,User,john.doe@example.com,")));
+    }
+
+    @Test
+    void exportAll_NonAdminRejected() throws Exception {
+        String userToken = "VALID_USER_TOKEN";
+        when(jwtService.authenticate(userToken)).thenReturn(new JwtPrincipal("PA123456", "JohnDoe@123", "User", null, null));
+
+        mockMvc.perform(get("/api/insuredpersons/export")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value("Admins only"));
+    }
+
+    @Test
+    void exportAll_UnknownFormatRejected() throws Exception {
+        String adminToken = "VALID_ADMIN_TOKEN";
+        when(jwtService.authenticate(adminToken)).thenReturn(new JwtPrincipal("PA1001", "SomeUserId", "Admin", null, null));
+
+        mockMvc.perform(get("/api/insuredpersons/export")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
 }
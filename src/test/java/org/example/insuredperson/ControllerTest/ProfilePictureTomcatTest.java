@@ -0,0 +1,74 @@
+package org.example.insuredperson.ControllerTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.ProfilePicture;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Repo.ProfilePictureRepository;
+import org.example.insuredperson.Service.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Through a real Tomcat and the whole filter chain: the response handed to the controller is wrapped by
+// Spring Security, and cache hits must still reach the connector's stream without a heap copy.
+// Its own in-memory database, so the rows are not shared with the other Spring contexts
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:picturetomcattestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+class ProfilePictureTomcatTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private InsuredPersonRepository repository;
+
+    @Autowired
+    private ProfilePictureRepository profilePictureRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void getProfilePicture_CacheHitWrittenDirectlyWithSecurityHeaders() {
+        String policyNumber = "PA8800001";
+        byte[] imageBytes = "fake-image-content".getBytes();
+
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber(policyNumber);
+        person.setUserId("Tomcat@123");
+        person.setFirstName("John");
+        person.setEmail("john.tomcat@example.com");
+        person.setPassword("not-a-real-hash");
+        person.setRole("User");
+        repository.save(person);
+        ProfilePicture picture = new ProfilePicture(policyNumber, MediaType.IMAGE_PNG_VALUE, imageBytes);
+        picture.setChecksum(ContentHash.sha256Hex(imageBytes));
+        profilePictureRepository.save(picture);
+
+        double direct = meterRegistry.get("offheap.cache.writes").tag("path", "direct").counter().count();
+        double copied = meterRegistry.get("offheap.cache.writes").tag("path", "copied").counter().count();
+
+        // the first request loads the picture into the cache, the second is a hit
+        ResponseEntity<byte[]> miss = restTemplate.getForEntity("/api/insuredpersons/profile-picture/{policyNumber}", byte[].class, policyNumber);
+        ResponseEntity<byte[]> hit = restTemplate.getForEntity("/api/insuredpersons/profile-picture/{policyNumber}", byte[].class, policyNumber);
+
+        assertEquals(HttpStatus.OK, miss.getStatusCode());
+        assertEquals(HttpStatus.OK, hit.getStatusCode());
+        assertArrayEquals(imageBytes, hit.getBody());
+        assertEquals(MediaType.IMAGE_PNG, hit.getHeaders().getContentType());
+        assertEquals(imageBytes.length, hit.getHeaders().getContentLength());
+        // written by Spring Security's HeaderWriterFilter when the wrapped response commits
+        assertEquals("nosniff", hit.getHeaders().getFirst("X-Content-Type-Options"));
+        assertEquals(direct + 1, meterRegistry.get("offheap.cache.writes").tag("path", "direct").counter().count());
+        assertEquals(copied, meterRegistry.get("offheap.cache.writes").tag("path", "copied").counter().count());
+    }
+}
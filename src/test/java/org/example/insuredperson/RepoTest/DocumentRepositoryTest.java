@@ -0,0 +1,96 @@
+package org.example.insuredperson.RepoTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.Entity.Document;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Its own in-memory database, so the rows are not shared with the other Spring contexts
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:documentrepotestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+class DocumentRepositoryTest {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private InsuredPersonRepository insuredPersonRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        insuredPersonRepository.deleteAll();
+
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber("PA7000001");
+        person.setUserId("Documents@123");
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.addDocument(document("policy.pdf", "application/pdf", new byte[2048]));
+        person.addDocument(document("id-card.png", "image/png", new byte[512]));
+        insuredPersonRepository.save(person);
+    }
+
+    private static Document document(String fileName, String fileType, byte[] data) {
+        Document document = new Document();
+        document.setFileName(fileName);
+        document.setFileType(fileType);
+        document.setFileSize((long) data.length);
+        document.setChecksum("a".repeat(63) + data.length % 10);
+        document.setData(data);
+        return document;
+    }
+
+    @Test
+    void testFindMetadata_SizeAndChecksumWithoutLoadingContent() {
+        statistics.clear();
+
+        List<DocumentDTO> documents = documentRepository.findMetadataByPolicyNumber("PA7000001");
+
+        assertEquals(List.of("policy.pdf", "id-card.png"), documents.stream().map(DocumentDTO::getFileName).toList());
+        assertEquals(2048, documents.get(0).getSize());
+        assertEquals("a".repeat(63) + "8", documents.get(0).getChecksum());
+        assertEquals(512, documents.get(1).getSize());
+        assertEquals("Doe", documents.get(1).getLastName());
+        assertNotNull(documents.get(0).getId());
+
+        // one projection query: no Document entity (and so no data column), no lazy load of the owner
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+    }
+
+    @Test
+    void testFindIdsWithData_OnlyRowsStillHoldingContent() {
+        List<DocumentDTO> documents = documentRepository.findMetadataByPolicyNumber("PA7000001");
+        Document moved = documentRepository.findById(documents.get(1).getId()).orElseThrow();
+        moved.setData(null);
+        documentRepository.save(moved);
+
+        assertEquals(List.of(documents.get(0).getId()),
+                documentRepository.findIdsWithData(documents.stream().map(DocumentDTO::getId).toList()));
+    }
+
+    @Test
+    void testFindMetadata_UnknownPolicyIsEmpty() {
+        assertTrue(documentRepository.findMetadataByPolicyNumber("PA7999999").isEmpty());
+    }
+}
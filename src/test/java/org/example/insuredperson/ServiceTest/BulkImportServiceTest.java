@@ -0,0 +1,238 @@
+package org.example.insuredperson.ServiceTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.insuredperson.DTO.BulkImportResult;
+import org.example.insuredperson.DTO.BulkImportRowResult;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Service.BulkImportService;
+import org.example.insuredperson.Service.PasswordHashingService;
+import org.example.insuredperson.Service.ValidationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class BulkImportServiceTest {
+
+    private static final String CSV_HEADER = "policyNumber,firstName,lastName,age,userId,password,email,phoneNumber,zipcode,typeOfInsurance";
+
+    @Mock
+    private InsuredPersonRepository repository;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BulkImportService bulkImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bulkImportService = new BulkImportService(repository, new ValidationService(), passwordHashingService,
+                jdbcTemplate, new ObjectMapper(), transactionManager);
+        when(repository.findExistingKeys(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(passwordHashingService.encodeAll(anyList())).thenAnswer(inv -> {
+            List<String> encoded = new ArrayList<>();
+            for (Object raw : inv.<List<?>>getArgument(0)) {
+                encoded.add("hash-" + raw);
+            }
+            return encoded;
+        });
+    }
+
+    private BulkImportResult importCsv(String... lines) throws IOException {
+        return importRows(BulkImportService.FORMAT_CSV, String.join("\n", lines));
+    }
+
+    private BulkImportResult importRows(String contentType, String body) throws IOException {
+        return bulkImportService.importRows(contentType, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String csvRow(String policyNumber, String userId) {
+        return policyNumber + ",John,Doe,40," + userId + ",Strong@123,john@example.com,2345678901,73301,Health";
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Object> insertedRows() {
+        ArgumentCaptor<Collection<Object>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        return rows.getValue();
+    }
+
+    private static List<String> statuses(BulkImportResult result) {
+        return result.getRows().stream().map(BulkImportRowResult::getStatus).toList();
+    }
+
+    @Test
+    void testCsv_ParsedAndInsertedInOneBatch() throws Exception {
+        BulkImportResult result = importCsv(CSV_HEADER,
+                csvRow("PA000001", "First@123"),
+                "",
+                csvRow("PA000002", "Second@123"));
+
+        assertEquals(2, result.getTotal());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(2L, 4L), result.getRows().stream().map(BulkImportRowResult::getLine).toList());
+        assertEquals(2, insertedRows().size());
+        verify(passwordHashingService).encodeAll(List.of("Strong@123", "Strong@123"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void testCsv_RowBoundToInsertColumns() throws Exception {
+        importCsv(CSV_HEADER, "PA000001,\"Doe, John\",Doe,,First@123,Strong@123,john@example.com,,,Health");
+
+        ArgumentCaptor<ParameterizedPreparedStatementSetter> setter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        ArgumentCaptor<Collection> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), eq(100), setter.capture());
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, rows.getValue().iterator().next());
+        verify(ps).setString(1, "PA000001");
+        verify(ps).setString(2, "Doe, John");
+        verify(ps).setNull(4, Types.INTEGER);
+        verify(ps).setString(6, "hash-Strong@123");
+        verify(ps).setString(9, null);
+        verify(ps).setString(16, "HEALTH_INSURANCE");
+        verify(ps).setString(17, null);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void testPreferredLanguage_ValidatedNormalizedAndBound() throws Exception {
+        BulkImportResult result = importCsv(CSV_HEADER + ",preferredLanguage",
+                "PA000001,John,Doe,40,First@123,Strong@123,john@example.com,,,Health,DE-de",
+                "PA000002,John,Doe,40,Second@123,Strong@123,john@example.com,,,Health,123");
+
+        assertEquals(List.of(BulkImportRowResult.CREATED, BulkImportRowResult.INVALID), statuses(result));
+        assertEquals("Preferred language must be a language tag such as \"en\" or \"de\"", result.getRows().get(1).getMessage());
+        ArgumentCaptor<ParameterizedPreparedStatementSetter> setter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        ArgumentCaptor<Collection> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), eq(100), setter.capture());
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, rows.getValue().iterator().next());
+        verify(ps).setString(17, "de-DE");
+    }
+
+    @Test
+    void testNdjson_ParsedAndMalformedLineRejected() throws Exception {
+        String body = "{\"policyNumber\":\"PA000001\",\"userId\":\"First@123\",\"password\":\"Strong@123\","
+                + "\"email\":\"john@example.com\",\"age\":40,\"typeOfInsurance\":\"Life\"}\n"
+                + "{not json\n";
+
+        BulkImportResult result = importRows(BulkImportService.FORMAT_NDJSON, body);
+
+        assertEquals(List.of(BulkImportRowResult.CREATED, BulkImportRowResult.INVALID), statuses(result));
+        assertTrue(result.getRows().get(1).getMessage().startsWith("Malformed JSON"));
+        assertEquals(1, insertedRows().size());
+    }
+
+    @Test
+    void testNdjson_NullLineRejected() throws Exception {
+        String body = "null\n"
+                + "{\"policyNumber\":\"PA000001\",\"userId\":\"First@123\",\"password\":\"Strong@123\","
+                + "\"email\":\"john@example.com\"}\n";
+
+        BulkImportResult result = importRows(BulkImportService.FORMAT_NDJSON, body);
+
+        assertEquals(List.of(BulkImportRowResult.INVALID, BulkImportRowResult.CREATED), statuses(result));
+        assertEquals("Row is not a JSON object", result.getRows().get(0).getMessage());
+        assertNull(result.getRows().get(0).getPolicyNumber());
+        assertEquals(1, insertedRows().size());
+    }
+
+    @Test
+    void testDuplicatesInsideFile_Rejected() throws Exception {
+        BulkImportResult result = importCsv(CSV_HEADER,
+                csvRow("PA000001", "First@123"),
+                csvRow("PA000001", "Other@123"),
+                csvRow("PA000002", "First@123"));
+
+        assertEquals(List.of(BulkImportRowResult.CREATED, BulkImportRowResult.DUPLICATE, BulkImportRowResult.DUPLICATE),
+                statuses(result));
+        assertEquals("Policy number repeated in import: PA000001", result.getRows().get(1).getMessage());
+        assertEquals("User id repeated in import: First@123", result.getRows().get(2).getMessage());
+        assertEquals(1, insertedRows().size());
+    }
+
+    @Test
+    void testDuplicatesAgainstDatabase_RejectedWithOneQuery() throws Exception {
+        when(repository.findExistingKeys(anyCollection(), anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{"PA000001", "Taken@123"}));
+
+        BulkImportResult result = importCsv(CSV_HEADER,
+                csvRow("PA000001", "First@123"),
+                csvRow("PA000002", "Taken@123"),
+                csvRow("PA000003", "Third@123"));
+
+        assertEquals(List.of(BulkImportRowResult.DUPLICATE, BulkImportRowResult.DUPLICATE, BulkImportRowResult.CREATED),
+                statuses(result));
+        assertEquals("Policy number already exists: PA000001", result.getRows().get(0).getMessage());
+        assertEquals("User id already exists: Taken@123", result.getRows().get(1).getMessage());
+        verify(repository, times(1)).findExistingKeys(anyCollection(), anyCollection());
+        // only the row that will be inserted is hashed
+        verify(passwordHashingService).encodeAll(List.of("Strong@123"));
+    }
+
+    @Test
+    void testValidation_RejectsBadFieldsIncludingEntityPatterns() throws Exception {
+        BulkImportResult result = importCsv(CSV_HEADER,
+                "XX000001,John,Doe,40,First@123,Strong@123,john@example.com,2345678901,73301,Health",
+                "PA000002,John,Doe,40,Second@123,weak,john@example.com,2345678901,73301,Health",
+                "PA000003,John,Doe,40,Third@123,Strong@123,john@example.com,1234567890,73301,Health",
+                "PA000004,John,Doe,40,Fourth@123,Strong@123,john@example.com,2345678901,7330,Health",
+                "PA000005,John,Doe,forty,Fifth@123,Strong@123,john@example.com,2345678901,73301,Health",
+                "PA000006,John,Doe,40,Sixth@123,Strong@123,john@example.com,,,Health");
+
+        assertEquals(List.of(BulkImportRowResult.INVALID, BulkImportRowResult.INVALID, BulkImportRowResult.INVALID,
+                BulkImportRowResult.INVALID, BulkImportRowResult.INVALID, BulkImportRowResult.CREATED), statuses(result));
+        assertEquals("Policy Number must start with 'PA'", result.getRows().get(0).getMessage());
+        assertEquals("Phone number must be 10 digits and start with digits 2-9", result.getRows().get(2).getMessage());
+        assertEquals("Zip code must be exactly 5 digits", result.getRows().get(3).getMessage());
+        assertEquals(1, insertedRows().size());
+    }
+
+    @Test
+    void testFailedBatch_MarksChunkFailed() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate entry 'PA000001'"));
+
+        BulkImportResult result = importCsv(CSV_HEADER, csvRow("PA000001", "First@123"), csvRow("PA000002", "Second@123"));
+
+        assertEquals(0, result.getCreated());
+        assertEquals(List.of(BulkImportRowResult.FAILED, BulkImportRowResult.FAILED), statuses(result));
+        assertTrue(result.getRows().get(0).getMessage().startsWith("Insert failed"));
+    }
+
+    @Test
+    void testNothingToInsert_NoHashingOrBatch() throws Exception {
+        BulkImportResult result = importCsv(CSV_HEADER, "PA000001,John,Doe,40,bad,Strong@123,john@example.com,,,");
+
+        assertEquals(1, result.getRejected());
+        verifyNoInteractions(passwordHashingService, jdbcTemplate);
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.Entity.CacheInvalidation;
+import org.example.insuredperson.Repo.CacheInvalidationRepository;
+import org.example.insuredperson.Service.CacheInvalidationBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CacheInvalidationBusTest {
+
+    @Mock
+    private CacheInvalidationRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CacheInvalidationBus bus;
+    private final List<Collection<String>> evicted = new ArrayList<>();
+    // the database's clock, deliberately far from this JVM's
+    private final Instant databaseNow = Instant.parse("2020-01-01T12:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        bus = new CacheInvalidationBus(repository, meterRegistry, Duration.ofSeconds(10), Duration.ofMinutes(10), 500);
+        bus.subscribe(CacheInvalidationBus.INSURED_PERSON, keys -> evicted.add(Set.copyOf(keys)));
+        when(repository.databaseTime()).thenReturn(databaseNow);
+    }
+
+    private CacheInvalidation row(long id, String key, String origin) {
+        CacheInvalidation row = new CacheInvalidation(CacheInvalidationBus.INSURED_PERSON, key, origin, databaseNow.minusMillis(200));
+        ReflectionTestUtils.setField(row, "id", id);
+        return row;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPublishInTransaction_CoalescedAndWrittenBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bus.publish(CacheInvalidationBus.INSURED_PERSON, "PA1");
+            bus.publish(CacheInvalidationBus.INSURED_PERSON, "PA1");
+            bus.publish(CacheInvalidationBus.INSURED_PERSON, "PA2");
+            verify(repository, never()).saveAll(any());
+
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.beforeCommit(false);
+                sync.afterCommit();
+                sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ArgumentCaptor<List<CacheInvalidation>> rows = ArgumentCaptor.forClass(List.class);
+        verify(repository).saveAll(rows.capture());
+        assertEquals(List.of("PA1", "PA2"), rows.getValue().stream().map(CacheInvalidation::getCacheKey).toList());
+        assertEquals(databaseNow, rows.getValue().get(0).getCreatedAt());
+        assertEquals(List.of(Set.of("PA1", "PA2")), evicted);
+    }
+
+    @Test
+    void testPoll_AppliesPeerRowsOnce() {
+        when(repository.findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(Instant.class), eq(0L), any(Limit.class)))
+                .thenReturn(List.of(row(1, "PA1", "peer"), row(2, "PA1", "peer"), row(3, "PA2", "peer")));
+
+        bus.poll();
+        bus.poll();   // same rows again inside the grace window
+
+        assertEquals(List.of(Set.of("PA1", "PA2")), evicted);
+        assertEquals(3, meterRegistry.get("cache.invalidation.lag").timer().count());
+        assertEquals(600, meterRegistry.get("cache.invalidation.lag").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testPoll_WindowFollowsDatabaseClock() {
+        when(repository.databaseTime()).thenReturn(databaseNow, databaseNow.plusSeconds(1), databaseNow.plusSeconds(2));
+        when(repository.findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(Instant.class), eq(0L), any(Limit.class)))
+                .thenReturn(List.of());
+
+        bus.poll();
+        bus.poll();
+        bus.poll();
+
+        // each window starts at the previous poll's database time minus the grace, whatever this JVM's clock says
+        verify(repository, times(2)).findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(databaseNow.minusSeconds(10)), eq(0L), any(Limit.class));
+        verify(repository).findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(
+                eq(databaseNow.minusSeconds(9)), eq(0L), any(Limit.class));
+    }
+
+    @Test
+    void testRemoveOld_RetentionByDatabaseClock() {
+        bus.removeOld();
+
+        verify(repository).deleteOlderThan(databaseNow.minus(Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void testPoll_SkipsOwnRows() {
+        String self = (String) ReflectionTestUtils.getField(bus, "instanceId");
+        when(repository.findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(any(Instant.class), eq(0L), any(Limit.class)))
+                .thenReturn(List.of(row(1, "PA1", self)));
+
+        bus.poll();
+
+        assertTrue(evicted.isEmpty());
+    }
+}
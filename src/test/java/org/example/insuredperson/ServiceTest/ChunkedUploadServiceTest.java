@@ -0,0 +1,287 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.DTO.UploadSessionRequest;
+import org.example.insuredperson.DTO.UploadSessionResponse;
+import org.example.insuredperson.Entity.Document;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.UploadSession;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Repo.UploadSessionRepository;
+import org.example.insuredperson.Service.ChunkedUploadService;
+import org.example.insuredperson.Service.ContentHash;
+import org.example.insuredperson.Service.DocumentBlobFallback;
+import org.example.insuredperson.Service.FileSystemDocumentStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ChunkedUploadServiceTest {
+
+    @Mock
+    private UploadSessionRepository sessionRepository;
+    @Mock
+    private InsuredPersonRepository personRepository;
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemDocumentStorage storage;
+    private ChunkedUploadService uploadService;
+    private final Map<String, UploadSession> sessions = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        storage = new FileSystemDocumentStorage(tempDir.resolve("store").toString());
+        uploadService = new ChunkedUploadService(sessionRepository, personRepository, documentRepository, storage,
+                new DocumentBlobFallback(jdbcTemplate, storage, false),
+                tempDir.resolve("uploads").toString(), 1024, Duration.ofHours(24));
+
+        // the session table, kept in a map
+        when(sessionRepository.save(any(UploadSession.class))).thenAnswer(inv -> {
+            UploadSession session = inv.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(sessionRepository.findById(any())).thenAnswer(inv -> Optional.ofNullable(sessions.get(inv.<String>getArgument(0))));
+        doAnswer(inv -> sessions.remove(inv.<UploadSession>getArgument(0).getId())).when(sessionRepository).delete(any());
+        when(sessionRepository.claim(any(), any(), any(), any())).thenReturn(1);
+
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber("PA123456");
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        when(personRepository.existsById("PA123456")).thenReturn(true);
+        when(personRepository.findById("PA123456")).thenReturn(Optional.of(person));
+    }
+
+    private UploadSessionResponse createSession(byte[] content, String checksum) throws IOException {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("claim.pdf");
+        request.setFileType("application/pdf");
+        request.setTotalSize((long) content.length);
+        request.setChecksum(checksum);
+        return uploadService.createSession("PA123456", request);
+    }
+
+    @Test
+    void testChunkedUpload_Success() throws IOException {
+        byte[] content = "first chunk|second chunk".getBytes(StandardCharsets.UTF_8);
+        String checksum = ContentHash.sha256Hex(content);
+        String uploadId = createSession(content, checksum).getUploadId();
+
+        UploadSessionResponse afterFirst = uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content, 0, 12));
+        assertEquals(12, afterFirst.getReceivedBytes());
+        uploadService.appendChunk(uploadId, 12, new ByteArrayInputStream(content, 12, content.length - 12));
+        DocumentDTO document = uploadService.complete(uploadId);
+
+        assertEquals(checksum, document.getChecksum());
+        assertEquals("claim.pdf", document.getFileName());
+        assertTrue(storage.exists(checksum));
+        assertArrayEquals(content, Files.readAllBytes(storage.localPath(checksum)));
+        ArgumentCaptor<Document> saved = ArgumentCaptor.forClass(Document.class);
+        verify(documentRepository).save(saved.capture());
+        assertEquals((long) content.length, saved.getValue().getFileSize());
+        assertTrue(sessions.isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("uploads").resolve(uploadId + ".part")));
+    }
+
+    @Test
+    void testComplete_PartFileKeptUntilCommit() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content));
+        Path part = tempDir.resolve("uploads").resolve(uploadId + ".part");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            uploadService.complete(uploadId);
+
+            assertTrue(storage.exists(ContentHash.sha256Hex(content)));
+            assertTrue(Files.exists(part));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertFalse(Files.exists(part));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testComplete_RetriedAfterRollback() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content));
+        UploadSession beforeComplete = sessions.get(uploadId);
+        when(documentRepository.save(any(Document.class))).thenThrow(new IllegalStateException("database went away"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThrows(IllegalStateException.class, () -> uploadService.complete(uploadId));
+        } finally {
+            // rolled back: no afterCommit, and the session row is back
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        sessions.put(uploadId, beforeComplete);
+        reset(documentRepository);
+
+        DocumentDTO document = uploadService.complete(uploadId);
+
+        assertEquals(ContentHash.sha256Hex(content), document.getChecksum());
+        assertArrayEquals(content, Files.readAllBytes(storage.localPath(document.getChecksum())));
+    }
+
+    @Test
+    void testComplete_ContentAlsoKeptInRowUntilStoreIsShared() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content));
+        when(documentRepository.save(any(Document.class))).thenAnswer(inv -> {
+            Document doc = inv.getArgument(0);
+            doc.setId(7L);
+            return doc;
+        });
+
+        uploadService.complete(uploadId);
+
+        verify(jdbcTemplate).update(eq("UPDATE document SET data = ? WHERE id = ?"), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void testComplete_SharedStoreKeepsRowEmpty() throws IOException {
+        ChunkedUploadService sharedUploads = new ChunkedUploadService(sessionRepository, personRepository, documentRepository,
+                storage, new DocumentBlobFallback(jdbcTemplate, storage, true), tempDir.resolve("uploads").toString(),
+                1024, Duration.ofHours(24));
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        sharedUploads.appendChunk(uploadId, 0, new ByteArrayInputStream(content));
+
+        sharedUploads.complete(uploadId);
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testAppendChunk_WrongOffset() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+
+        CustomExceptions.ConflictException exception = assertThrows(CustomExceptions.ConflictException.class,
+                () -> uploadService.appendChunk(uploadId, 4, new ByteArrayInputStream(content)));
+
+        assertEquals("Expected offset 0 but got 4", exception.getMessage());
+    }
+
+    @Test
+    void testAppendChunk_ClaimedElsewhere() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        when(sessionRepository.claim(eq(uploadId), any(), any(), any())).thenReturn(0);
+
+        assertThrows(CustomExceptions.ConflictException.class,
+                () -> uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content)));
+        verify(sessionRepository, never()).release(any(), any());
+    }
+
+    @Test
+    void testAppendChunk_OffsetCheckedAgainstSessionReadUnderClaim() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        // another instance stores a chunk between our first read and our claim
+        when(sessionRepository.claim(eq(uploadId), any(), any(), any())).thenAnswer(inv -> {
+            UploadSession advanced = new UploadSession(uploadId, "PA123456", "claim.pdf", "application/pdf", content.length, null);
+            advanced.setReceivedBytes(4);
+            sessions.put(uploadId, advanced);
+            return 1;
+        });
+
+        CustomExceptions.ConflictException exception = assertThrows(CustomExceptions.ConflictException.class,
+                () -> uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content)));
+
+        assertEquals("Expected offset 4 but got 0", exception.getMessage());
+        verify(sessionRepository).release(eq(uploadId), any());
+    }
+
+    @Test
+    void testAppendChunk_PartFileOnAnotherInstance() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        Files.delete(tempDir.resolve("uploads").resolve(uploadId + ".part"));
+
+        assertThrows(CustomExceptions.ServiceUnavailableException.class,
+                () -> uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content)));
+        assertEquals(0, sessions.get(uploadId).getReceivedBytes());
+    }
+
+    @Test
+    void testAppendChunk_PastDeclaredSize() throws IOException {
+        byte[] content = "short".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+
+        assertThrows(CustomExceptions.ValidationException.class,
+                () -> uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream("much too long".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(0, sessions.get(uploadId).getReceivedBytes());
+    }
+
+    @Test
+    void testComplete_ChecksumMismatch() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, ContentHash.sha256Hex("other content".getBytes(StandardCharsets.UTF_8))).getUploadId();
+        uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content));
+
+        assertThrows(CustomExceptions.ValidationException.class, () -> uploadService.complete(uploadId));
+        assertFalse(storage.exists(ContentHash.sha256Hex(content)));
+        verify(documentRepository, never()).save(any());
+        assertTrue(sessions.isEmpty());
+    }
+
+    @Test
+    void testComplete_Incomplete() throws IOException {
+        byte[] content = "some content".getBytes(StandardCharsets.UTF_8);
+        String uploadId = createSession(content, null).getUploadId();
+        uploadService.appendChunk(uploadId, 0, new ByteArrayInputStream(content, 0, 4));
+
+        CustomExceptions.ValidationException exception = assertThrows(CustomExceptions.ValidationException.class,
+                () -> uploadService.complete(uploadId));
+
+        assertEquals("Upload incomplete: 4 of 12 bytes received", exception.getMessage());
+    }
+
+    @Test
+    void testCreateSession_TooLarge() {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("huge.pdf");
+        request.setTotalSize(4096L);
+
+        assertThrows(CustomExceptions.ValidationException.class, () -> uploadService.createSession("PA123456", request));
+        verify(sessionRepository, never()).save(any());
+    }
+}
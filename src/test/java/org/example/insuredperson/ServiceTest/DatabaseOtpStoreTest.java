@@ -0,0 +1,123 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Entity.OneTimeCode;
+import org.example.insuredperson.Repo.OneTimeCodeRepository;
+import org.example.insuredperson.Service.DatabaseOtpStore;
+import org.example.insuredperson.Service.OtpStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the H2 schema, so the unique hash index and the delete-as-compare-and-set are the real ones.
+// Its own in-memory database, so this second context does not recreate the schema under the others
+@SpringBootTest(properties = {
+        "app.otp.store=database",
+        "spring.datasource.url=jdbc:h2:mem:otptestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class DatabaseOtpStoreTest {
+
+    @Autowired
+    private OtpStore otpStore;
+
+    @Autowired
+    private OneTimeCodeRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void testBackendSelectedByProperty() {
+        assertInstanceOf(DatabaseOtpStore.class, otpStore);
+    }
+
+    @Test
+    void testIssueMatchConsume() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertTrue(code.matches("\\d{6}"));
+        assertTrue(otpStore.matches("password-reset", "john", code));
+        assertFalse(otpStore.matches("other-purpose", "john", code));
+        assertTrue(otpStore.consume("password-reset", "john", code));
+        assertFalse(otpStore.consume("password-reset", "john", code));
+        assertFalse(otpStore.matches("password-reset", "john", code));
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void testCode_OnlyValidForItsSubject() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertFalse(otpStore.matches("password-reset", "jane", code));
+        assertFalse(otpStore.consume("password-reset", "jane", code));
+        assertTrue(otpStore.matches("password-reset", "john", code));
+    }
+
+    @Test
+    void testCode_NotStoredInPlainText() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        OneTimeCode stored = repository.findAll().get(0);
+        assertEquals(64, stored.getCodeHash().length());
+        assertFalse(stored.getCodeHash().contains(code));
+        assertEquals("john", stored.getSubject());
+    }
+
+    @Test
+    void testReissue_ReplacesPreviousCode() {
+        String first = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+        String second = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertEquals(1, repository.count());
+        assertTrue(otpStore.matches("password-reset", "john", second));
+        if (!first.equals(second)) {
+            assertFalse(otpStore.consume("password-reset", "john", first));
+        }
+    }
+
+    @Test
+    void testExpiredCode_RejectedAndRemoved() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMillis(-1));
+        otpStore.issue("password-reset", "jane", Duration.ofMinutes(10));
+
+        assertFalse(otpStore.matches("password-reset", "john", code));
+        assertFalse(otpStore.consume("password-reset", "john", code));
+
+        assertEquals(1, repository.deleteExpired(Instant.now()));
+        assertEquals(List.of("jane"), repository.findAll().stream().map(OneTimeCode::getSubject).toList());
+    }
+
+    @Test
+    void testConsume_OnlyOneOfConcurrentCallersWins() throws Exception {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+        Callable<Boolean> consume = () -> otpStore.consume("password-reset", "john", code);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = pool.invokeAll(List.of(consume, consume, consume, consume));
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.DTO.DocumentDTO;
+import org.example.insuredperson.Entity.Document;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.example.insuredperson.Service.DocumentDownloadService;
+import org.example.insuredperson.Service.DocumentStorage;
+import org.example.insuredperson.Service.FileSystemDocumentStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DocumentDownloadServiceTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemDocumentStorage storage;
+    private DocumentDownloadService downloadService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        storage = new FileSystemDocumentStorage(tempDir.toString());
+        downloadService = new DocumentDownloadService(storage, documentRepository, new SimpleMeterRegistry());
+    }
+
+    private DocumentDTO stored(String fileName, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        DocumentStorage.StoredContent stored = storage.store(new ByteArrayInputStream(bytes));
+        return new DocumentDTO(fileName, "application/pdf", stored.getSize(), stored.getContentHash(), "PA123456", "John", "Doe");
+    }
+
+    private static Map<String, String> unzip(byte[] bundle) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bundle))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    void testWriteBundle_OneEntryPerDocument() throws IOException {
+        List<DocumentDTO> documents = List.of(
+                stored("claim.pdf", "first claim"),
+                stored("claim.pdf", "second claim"),
+                stored("id.png", "identity"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.writeBundle(documents, out);
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(List.of("claim.pdf", "claim (1).pdf", "id.png"), List.copyOf(entries.keySet()));
+        assertEquals("first claim", entries.get("claim.pdf"));
+        assertEquals("second claim", entries.get("claim (1).pdf"));
+        assertEquals("identity", entries.get("id.png"));
+        verify(documentRepository, never()).findById(any());
+    }
+
+    @Test
+    void testWriteBundle_EntryNamesStrippedToBaseName() throws IOException {
+        List<DocumentDTO> documents = List.of(
+                stored("../../etc/cron.d/evil", "first"),
+                stored("..\\..\\windows\\evil.bat", "second"),
+                stored("..", "third"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.writeBundle(documents, out);
+
+        assertEquals(List.of("evil", "evil.bat", "document"), List.copyOf(unzip(out.toByteArray()).keySet()));
+    }
+
+    @Test
+    void testWriteBundle_LegacyRowsLoadedById() throws IOException {
+        Document first = new Document();
+        first.setData("first scan".getBytes(StandardCharsets.UTF_8));
+        Document second = new Document();
+        second.setData("second scan".getBytes(StandardCharsets.UTF_8));
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(first));
+        when(documentRepository.findById(2L)).thenReturn(Optional.of(second));
+        List<DocumentDTO> documents = List.of(
+                new DocumentDTO(1L, "scan.pdf", "application/pdf", 10L, null, "PA123456", "John", "Doe"),
+                new DocumentDTO(2L, "scan.pdf", "application/pdf", 11L, null, "PA123456", "John", "Doe"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.writeBundle(documents, out);
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        assertEquals("first scan", entries.get("scan.pdf"));
+        assertEquals("second scan", entries.get("scan (1).pdf"));
+        verify(documentRepository, never()).findByInsuredPersonPolicyNumberAndFileName(any(), any());
+    }
+
+    @Test
+    void testRequireBundleContent_MissingDocumentsNamed() throws IOException {
+        when(documentRepository.findIdsWithData(List.of(1L, 2L))).thenReturn(List.of(1L));
+        List<DocumentDTO> documents = List.of(
+                stored("claim.pdf", "claim"),
+                new DocumentDTO(1L, "scan.pdf", "application/pdf", 10L, null, "PA123456", "John", "Doe"),
+                new DocumentDTO(2L, "lost.pdf", "application/pdf", 11L, "b".repeat(64), "PA123456", "John", "Doe"));
+
+        CustomExceptions.ResourceNotFoundException exception = assertThrows(CustomExceptions.ResourceNotFoundException.class,
+                () -> downloadService.requireBundleContent(documents));
+
+        assertEquals("Document content not found: lost.pdf", exception.getMessage());
+    }
+
+    @Test
+    void testRequireBundleContent_StoredOnlyNeedsNoQuery() throws IOException {
+        downloadService.requireBundleContent(List.of(stored("claim.pdf", "claim"), stored("id.png", "identity")));
+
+        verifyNoInteractions(documentRepository);
+    }
+
+    @Test
+    void testWriteBundle_DocumentGoneMidStreamAbortsBundle() throws IOException {
+        when(documentRepository.findById(2L)).thenReturn(Optional.of(new Document()));
+        List<DocumentDTO> documents = List.of(
+                stored("claim.pdf", "claim"),
+                new DocumentDTO(2L, "lost.pdf", "application/pdf", 11L, "b".repeat(64), "PA123456", "John", "Doe"));
+
+        IOException exception = assertThrows(IOException.class,
+                () -> downloadService.writeBundle(documents, new ByteArrayOutputStream()));
+
+        assertEquals("Document content not found: lost.pdf", exception.getMessage());
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Repo.DocumentRepository;
+import org.example.insuredperson.Service.DocumentStorage;
+import org.example.insuredperson.Service.DocumentStorageSweeper;
+import org.example.insuredperson.Service.FileSystemDocumentStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+public class DocumentStorageSweeperTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private FileSystemDocumentStorage storage;
+    private DocumentStorageSweeper sweeper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        storage = new FileSystemDocumentStorage(tempDir.toString());
+        sweeper = new DocumentStorageSweeper(storage, documentRepository, Duration.ofHours(1));
+        when(documentRepository.findReferencedChecksums(anyCollection())).thenReturn(List.of());
+    }
+
+    // stored two hours ago, so outside the grace period
+    private String storedEarlier(String content) throws IOException {
+        String contentHash = storage.store(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))).getContentHash();
+        Files.setLastModifiedTime(storage.localPath(contentHash), FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        return contentHash;
+    }
+
+    @Test
+    void testDeleteUnreferenced_SharedContentIsKept() throws IOException {
+        String orphan = storedEarlier("deleted person's claim");
+        String shared = storedEarlier("claim another person uploaded too");
+        when(documentRepository.findReferencedChecksums(anyCollection())).thenReturn(List.of(shared));
+
+        assertEquals(1, sweeper.deleteUnreferenced(List.of(orphan, shared)));
+
+        assertFalse(storage.exists(orphan));
+        assertTrue(storage.exists(shared));
+    }
+
+    @Test
+    void testDeleteUnreferenced_RecentlyStoredDuplicateIsKept() throws IOException {
+        String contentHash = storedEarlier("claim");
+        // an upload of the same content that has not committed its row yet
+        DocumentStorage.StoredContent duplicate = storage.store(new ByteArrayInputStream("claim".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(contentHash, duplicate.getContentHash());
+
+        assertEquals(0, sweeper.deleteUnreferenced(List.of(contentHash)));
+        assertTrue(storage.exists(contentHash));
+    }
+
+    @Test
+    void testSweep_OnlyOrphanedContentAndNoUploadParts() throws IOException {
+        String orphan = storedEarlier("orphan");
+        String referenced = storedEarlier("referenced");
+        String fresh = storage.store(new ByteArrayInputStream("fresh".getBytes(StandardCharsets.UTF_8))).getContentHash();
+        Path part = Files.createDirectories(tempDir.resolve("uploads")).resolve("0b9f1c9e-3c1c-4d8e-9a4c-2f4c1f0b6a11.part");
+        Files.writeString(part, "half an upload");
+        Files.setLastModifiedTime(part, FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+        when(documentRepository.findReferencedChecksums(anyCollection())).thenReturn(List.of(referenced));
+
+        sweeper.sweep();
+
+        assertFalse(storage.exists(orphan));
+        assertTrue(storage.exists(referenced));
+        assertTrue(storage.exists(fresh));
+        assertTrue(Files.exists(part));
+    }
+
+    @Test
+    void testDeleteUnreferencedAfterCommit_WithoutTransactionRunsAtOnce() throws IOException {
+        String orphan = storedEarlier("orphan");
+
+        sweeper.deleteUnreferencedAfterCommit(List.of(orphan));
+
+        assertFalse(storage.exists(orphan));
+    }
+}
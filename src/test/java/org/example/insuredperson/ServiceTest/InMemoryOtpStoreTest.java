@@ -0,0 +1,76 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Service.InMemoryOtpStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryOtpStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private InMemoryOtpStore otpStore;
+
+    @BeforeEach
+    void setUp() {
+        otpStore = new InMemoryOtpStore(Duration.ofSeconds(10), 8, now::get);
+    }
+
+    @Test
+    void testIssueMatchConsume() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertTrue(code.matches("\\d{6}"));
+        assertTrue(otpStore.matches("password-reset", "john", code));
+        assertFalse(otpStore.matches("other-purpose", "john", code));
+        assertTrue(otpStore.consume("password-reset", "john", code));
+        assertFalse(otpStore.consume("password-reset", "john", code));
+        assertFalse(otpStore.matches("password-reset", "john", code));
+    }
+
+    @Test
+    void testCode_OnlyValidForItsSubject() {
+        String johnsCode = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertFalse(otpStore.matches("password-reset", "nobody", johnsCode));
+        assertFalse(otpStore.consume("password-reset", "nobody", johnsCode));
+        assertFalse(otpStore.matches("password-reset", "john", null));
+        assertTrue(otpStore.consume("password-reset", "john", johnsCode));
+    }
+
+    @Test
+    void testReissue_ReplacesPreviousCode() {
+        String first = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+        String second = otpStore.issue("password-reset", "john", Duration.ofMinutes(10));
+
+        assertNotEquals(first, second);
+        assertFalse(otpStore.matches("password-reset", "john", first));
+        assertFalse(otpStore.consume("password-reset", "john", first));
+        assertTrue(otpStore.matches("password-reset", "john", second));
+        assertEquals(1, otpStore.size());
+    }
+
+    @Test
+    void testExpiredCode_RejectedAndSwept() {
+        String code = otpStore.issue("password-reset", "john", Duration.ofSeconds(30));
+        String longLived = otpStore.issue("password-reset", "jane", Duration.ofMinutes(10));
+
+        now.addAndGet(Duration.ofSeconds(31).toMillis());
+        assertFalse(otpStore.matches("password-reset", "john", code));
+
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        otpStore.expire();
+        assertEquals(1, otpStore.size());
+        assertFalse(otpStore.consume("password-reset", "john", code));
+
+        // ten minutes is several laps of an 80-second wheel; the code must survive every pass
+        for (int i = 0; i < 50; i++) {
+            now.addAndGet(Duration.ofSeconds(10).toMillis());
+            otpStore.expire();
+        }
+        assertTrue(otpStore.matches("password-reset", "jane", longLived));
+    }
+}
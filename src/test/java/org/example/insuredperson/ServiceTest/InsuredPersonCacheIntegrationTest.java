@@ -0,0 +1,202 @@
+package org.example.insuredperson.ServiceTest;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.insuredperson.DTO.ChangePasswordRequest;
+import org.example.insuredperson.DTO.InsuredPersonRequest;
+import org.example.insuredperson.Entity.CacheInvalidation;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.CacheInvalidationRepository;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Service.CacheInvalidationBus;
+import org.example.insuredperson.Service.InsuredPersonService;
+import org.example.insuredperson.Service.PasswordHashingService;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.NaturalIdStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every write path against a warm second-level cache: the next read by policyNumber and by userId must see the change.
+// Its own in-memory database, so the rows and cache regions are not shared with the other Spring contexts
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:l2cachetestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+class InsuredPersonCacheIntegrationTest {
+
+    private static final String POLICY_NUMBER = "PA5550001";
+    private static final String USER_ID = "Cached@123";
+    private static final String PASSWORD = "Strong@123";
+
+    @Autowired
+    private InsuredPersonService insuredPersonService;
+
+    @Autowired
+    private InsuredPersonRepository repository;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private CacheInvalidationRepository invalidationRepository;
+
+    @Autowired
+    private CacheInvalidationBus invalidationBus;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Cache cache;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        cache = sessionFactory.getCache();
+        statistics = sessionFactory.getStatistics();
+
+        repository.deleteAll();
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber(POLICY_NUMBER);
+        person.setUserId(USER_ID);
+        person.setPassword(passwordHashingService.encode(PASSWORD));
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.setAge(40);
+        person.setEmail("john.doe@example.com");
+        person.setRole("USER");
+        repository.save(person);
+        cache.evictAllRegions();
+
+        warmCache();
+    }
+
+    // Loads the person by both keys and checks the second read really came out of the cache
+    private void warmCache() {
+        insuredPersonService.findById(POLICY_NUMBER);
+        insuredPersonService.findByUserId(USER_ID);
+        assertTrue(cache.containsEntity(InsuredPerson.class, POLICY_NUMBER));
+
+        long hits = statistics.getDomainDataRegionStatistics("insuredPerson").getHitCount();
+        insuredPersonService.findById(POLICY_NUMBER);
+        assertTrue(statistics.getDomainDataRegionStatistics("insuredPerson").getHitCount() > hits);
+    }
+
+    @Test
+    void testUpdateInsuredPerson_SeenByBothLookups() {
+        InsuredPersonRequest dto = new InsuredPersonRequest();
+        dto.setFirstName("Johnny");
+        dto.setAge(41);
+
+        insuredPersonService.updateInsuredPerson(POLICY_NUMBER, dto);
+
+        assertEquals("Johnny", insuredPersonService.findById(POLICY_NUMBER).getFirstName());
+        assertEquals(41, insuredPersonService.findByUserId(USER_ID).getAge());
+        // the invalidation row for peers is stamped with the database's clock
+        Instant databaseNow = invalidationRepository.databaseTime();
+        assertTrue(invalidationRepository.findAll().stream().anyMatch(row -> POLICY_NUMBER.equals(row.getCacheKey())
+                && !row.getCreatedAt().isAfter(databaseNow) && row.getCreatedAt().isAfter(databaseNow.minusSeconds(60))));
+    }
+
+    @Test
+    void testUpdateInsuredPerson_UserIdChangeMovesNaturalId() {
+        InsuredPersonRequest dto = new InsuredPersonRequest();
+        dto.setUserId("Renamed@123");
+
+        insuredPersonService.updateInsuredPerson(POLICY_NUMBER, dto);
+
+        assertEquals(POLICY_NUMBER, insuredPersonService.findByUserId("Renamed@123").getPolicyNumber());
+        assertEquals("Renamed@123", insuredPersonService.findById(POLICY_NUMBER).getUserId());
+        assertThrows(CustomExceptions.ResourceNotFoundException.class, () -> insuredPersonService.findByUserId(USER_ID));
+    }
+
+    @Test
+    void testUpdatePassword_NewHashSeenByLogin() {
+        ChangePasswordRequest request = new ChangePasswordRequest();
+        request.setUserId(USER_ID);
+        request.setOldPassword(PASSWORD);
+        request.setNewPassword("Changed@456");
+        request.setConfirmNewPassword("Changed@456");
+
+        insuredPersonService.updatePassword(request);
+
+        assertTrue(passwordHashingService.matches("Changed@456", insuredPersonService.findByUserId(USER_ID).getPassword()));
+        assertTrue(passwordHashingService.matches("Changed@456", insuredPersonService.findById(POLICY_NUMBER).getPassword()));
+    }
+
+    @Test
+    void testDeleteInsuredPerson_NoLongerFound() {
+        insuredPersonService.deleteInsuredPerson(POLICY_NUMBER);
+
+        assertThrows(CustomExceptions.ResourceNotFoundException.class, () -> insuredPersonService.findById(POLICY_NUMBER));
+        assertThrows(CustomExceptions.ResourceNotFoundException.class, () -> insuredPersonService.findByUserId(USER_ID));
+    }
+
+    @Test
+    void testBulkUpdates_EvictCachedEntity() {
+        assertEquals(1, repository.updateFirstName(POLICY_NUMBER, "Jack"));
+        assertEquals("Jack", insuredPersonService.findById(POLICY_NUMBER).getFirstName());
+
+        warmCache();
+        assertEquals(1, repository.updateLastName(POLICY_NUMBER, "Smith"));
+        assertEquals("Smith", insuredPersonService.findByUserId(USER_ID).getLastName());
+
+        warmCache();
+        assertEquals(1, repository.updateAge(POLICY_NUMBER, 50));
+        assertEquals(50, insuredPersonService.findById(POLICY_NUMBER).getAge());
+
+        warmCache();
+        assertEquals(1, repository.updatePassword(POLICY_NUMBER, "not-a-real-hash"));
+        assertEquals("not-a-real-hash", insuredPersonService.findByUserId(USER_ID).getPassword());
+    }
+
+    @Test
+    void testBulkUserIdUpdate_EvictsNaturalId() {
+        assertEquals(1, repository.updateUserId(POLICY_NUMBER, "Bulk@123"));
+
+        assertEquals(POLICY_NUMBER, insuredPersonService.findByUserId("Bulk@123").getPolicyNumber());
+        assertEquals("Bulk@123", insuredPersonService.findById(POLICY_NUMBER).getUserId());
+        assertThrows(CustomExceptions.ResourceNotFoundException.class, () -> insuredPersonService.findByUserId(USER_ID));
+    }
+
+    @Test
+    void testPeerRename_EvictsOnlyThatNaturalId() {
+        InsuredPerson other = new InsuredPerson();
+        other.setPolicyNumber("PA5550002");
+        other.setUserId("Other@123");
+        other.setPassword("not-a-real-hash");
+        other.setFirstName("Jane");
+        other.setEmail("jane.doe@example.com");
+        other.setRole("USER");
+        repository.save(other);
+        insuredPersonService.findByUserId("Other@123");
+
+        // another instance renames the person: nothing on this instance saw the write
+        jdbcTemplate.update("UPDATE insured_person SET user_id = ? WHERE policy_number = ?", "Renamed@123", POLICY_NUMBER);
+        Instant databaseNow = invalidationRepository.databaseTime();
+        invalidationRepository.saveAll(List.of(
+                new CacheInvalidation(CacheInvalidationBus.INSURED_PERSON, POLICY_NUMBER, "peer", databaseNow),
+                new CacheInvalidation(CacheInvalidationBus.INSURED_PERSON_USER_ID, USER_ID, "peer", databaseNow)));
+        invalidationBus.poll();
+
+        assertThrows(CustomExceptions.ResourceNotFoundException.class, () -> insuredPersonService.findByUserId(USER_ID));
+        assertEquals(POLICY_NUMBER, insuredPersonService.findByUserId("Renamed@123").getPolicyNumber());
+        // the other person's userId is still resolved from the natural-id cache
+        NaturalIdStatistics naturalIds = statistics.getNaturalIdStatistics(InsuredPerson.class.getName());
+        long hits = naturalIds.getCacheHitCount();
+        assertEquals("PA5550002", insuredPersonService.findByUserId("Other@123").getPolicyNumber());
+        assertEquals(hits + 1, naturalIds.getCacheHitCount());
+    }
+}
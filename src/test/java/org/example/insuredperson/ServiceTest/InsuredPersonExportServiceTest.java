@@ -0,0 +1,124 @@
+package org.example.insuredperson.ServiceTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.insuredperson.DTO.InsuredPersonResponse;
+import org.example.insuredperson.Entity.InsuranceType;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Service.InsuredPersonExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InsuredPersonExportServiceTest {
+
+    private static final String CSV_HEADER = "policyNumber,firstName,lastName,age,userId,role,email,phoneNumber," +
+            "street,apartment,city,state,country,zipcode,typeOfInsurance,preferredLanguage";
+
+    @Mock
+    private InsuredPersonRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private InsuredPersonExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exportService = new InsuredPersonExportService(repository, objectMapper, transactionManager);
+    }
+
+    private static InsuredPersonResponse person(String policyNumber, String firstName, String street) {
+        return new InsuredPersonResponse(policyNumber, firstName, "Doe", 40, firstName + "@123", "User",
+                firstName.toLowerCase() + "@example.com", "2345678901", street, null, "Austin", "73301", "TX", "USA",
+                InsuranceType.HEALTH_INSURANCE, "de");
+    }
+
+    private String export(String format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testNdjson_OneObjectPerLine() throws Exception {
+        when(repository.streamAllForExport()).thenReturn(Stream.of(
+                person("PA000001", "John", "1 Main St"),
+                person("PA000002", "Jane", "2 Main St")));
+
+        String output = export("ndjson");
+
+        assertTrue(output.endsWith("\n"));
+        String[] lines = output.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("PA000001", first.get("policyNumber").asText());
+        assertEquals("Health", first.get("typeOfInsurance").asText());
+        assertEquals("de", first.get("preferredLanguage").asText());
+        assertFalse(first.has("password"));
+        assertEquals("Jane", objectMapper.readTree(lines[1]).get("firstName").asText());
+    }
+
+    @Test
+    void testCsv_HeaderAndColumnOrder() {
+        when(repository.streamAllForExport()).thenReturn(Stream.of(person("PA000001", "John", "1 Main St")));
+
+        String[] lines = export("CSV").split("\n");
+
+        assertEquals(CSV_HEADER, lines[0]);
+        assertEquals("PA000001,John,Doe,40,John@123,User,john@example.com,2345678901,1 Main St,,Austin,TX,USA,73301,Health,de",
+                lines[1]);
+    }
+
+    @Test
+    void testCsv_QuotesOnlyValuesThatNeedIt() {
+        when(repository.streamAllForExport()).thenReturn(Stream.of(
+                person("PA000001", "John", "Apt 4, \"Rear\" Building\nSecond line")));
+
+        String output = export("csv");
+
+        assertTrue(output.contains(",\"Apt 4, \"\"Rear\"\" Building\nSecond line\",,Austin,"));
+        assertTrue(output.startsWith(CSV_HEADER + "\nPA000001,John,"));
+    }
+
+    @Test
+    void testEmptyTable() {
+        when(repository.streamAllForExport()).thenReturn(Stream.empty());
+        assertEquals(CSV_HEADER + "\n", export("csv"));
+
+        when(repository.streamAllForExport()).thenReturn(Stream.empty());
+        assertEquals("", export("ndjson"));
+    }
+
+    @Test
+    void testStreamClosedAfterExport() {
+        Stream<InsuredPersonResponse> rows = Stream.of(person("PA000001", "John", "1 Main St"));
+        Runnable onClose = mock(Runnable.class);
+        when(repository.streamAllForExport()).thenReturn(rows.onClose(onClose));
+
+        export("ndjson");
+
+        verify(onClose).run();
+    }
+
+    @Test
+    void testValidateFormat() {
+        InsuredPersonExportService.validateFormat("NDJSON");
+        InsuredPersonExportService.validateFormat("csv");
+        assertThrows(CustomExceptions.ValidationException.class, () -> InsuredPersonExportService.validateFormat("xml"));
+        assertEquals("text/csv", InsuredPersonExportService.contentType("csv"));
+        assertEquals("application/x-ndjson", InsuredPersonExportService.contentType("ndjson"));
+    }
+}
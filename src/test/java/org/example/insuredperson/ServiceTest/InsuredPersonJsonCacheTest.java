@@ -0,0 +1,86 @@
+package org.example.insuredperson.ServiceTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.DTO.APIResponse;
+import org.example.insuredperson.DTO.InsuredPersonResponse;
+import org.example.insuredperson.Repo.CacheInvalidationRepository;
+import org.example.insuredperson.Service.CacheInvalidationBus;
+import org.example.insuredperson.Service.InsuredPersonJsonCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InsuredPersonJsonCacheTest {
+
+    @Mock
+    private CacheInvalidationRepository invalidationRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CacheInvalidationBus bus;
+    private InsuredPersonJsonCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        bus = new CacheInvalidationBus(invalidationRepository, meterRegistry, Duration.ofSeconds(10), Duration.ofMinutes(10), 500);
+        cache = new InsuredPersonJsonCache(objectMapper, bus, meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    private APIResponse<InsuredPersonResponse> response(String policyNumber, String firstName) {
+        InsuredPersonResponse person = new InsuredPersonResponse();
+        person.setPolicyNumber(policyNumber);
+        person.setFirstName(firstName);
+        return new APIResponse<>(200, "InsuredPerson retrieved successfully", person);
+    }
+
+    @Test
+    void testPut_SerializedOnceAndServedFromCache() throws IOException {
+        byte[] json = cache.put("PA123456", cache.version(), response("PA123456", "John"));
+
+        JsonNode body = objectMapper.readTree(json);
+        assertEquals(200, body.get("status").asInt());
+        assertEquals("John", body.get("data").get("firstName").asText());
+        assertSame(json, cache.get("PA123456"));
+        assertNull(cache.get("PA999999"));
+    }
+
+    @Test
+    void testPublish_EvictsEntry() {
+        cache.put("PA123456", cache.version(), response("PA123456", "John"));
+
+        bus.publish(CacheInvalidationBus.INSURED_PERSON, "PA123456");
+
+        assertNull(cache.get("PA123456"));
+    }
+
+    @Test
+    void testPut_WriteDuringLoadIsNotCached() {
+        long version = cache.version();
+        // a writer commits between the read of the row and the put of its bytes
+        bus.publish(CacheInvalidationBus.INSURED_PERSON, "PA123456");
+
+        byte[] json = cache.put("PA123456", version, response("PA123456", "John"));
+
+        assertNotNull(json);
+        assertNull(cache.get("PA123456"));
+    }
+
+    @Test
+    void testGet_OnlyExactPolicyNumber() {
+        cache.put("PA123456", cache.version(), response("PA123456", "John"));
+
+        assertNull(cache.get("pa123456"));
+        // invalidations are matched case-insensitively, like the database does
+        bus.publish(CacheInvalidationBus.INSURED_PERSON, "pa123456");
+        assertNull(cache.get("PA123456"));
+    }
+}
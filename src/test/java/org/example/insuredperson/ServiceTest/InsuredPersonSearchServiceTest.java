@@ -0,0 +1,133 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Service.InsuredPersonSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InsuredPersonSearchServiceTest {
+
+    @Mock
+    private InsuredPersonRepository repository;
+
+    private InsuredPersonSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        searchService = new InsuredPersonSearchService(repository);
+    }
+
+    private static InsuredPerson person(String policyNumber, String firstName, String lastName, String userId) {
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber(policyNumber);
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setUserId(userId);
+        return person;
+    }
+
+    @Test
+    void testClassify() {
+        assertEquals(InsuredPersonSearchService.QueryType.EMAIL, InsuredPersonSearchService.classify("john@gmail.com"));
+        assertEquals(InsuredPersonSearchService.QueryType.PHONE, InsuredPersonSearchService.classify("2134567890"));
+        assertEquals(InsuredPersonSearchService.QueryType.TEXT, InsuredPersonSearchService.classify("PA123456"));
+        assertEquals(InsuredPersonSearchService.QueryType.TEXT, InsuredPersonSearchService.classify("Johndoe@1210"));
+    }
+
+    @Test
+    void testSearch_PolicyNumberWins() {
+        InsuredPerson byPolicy = person("PA123456", "John", "Doe", "John@1234");
+        InsuredPerson byName = person("PA999999", "PA123456", "Doe", "Jane@1234");
+        when(repository.searchByPolicyNumberOrNameOrUserId("PA123456", "PA123456%"))
+                .thenReturn(Arrays.asList(byName, byPolicy));
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("PA123456");
+
+        assertTrue(result.isPolicyMatch());
+        assertEquals(List.of(byPolicy), result.getPersons());
+    }
+
+    @Test
+    void testSearch_FirstNameBeatsLastNameAndPrefix() {
+        InsuredPerson exact = person("PA1", "John", "Smith", "John@1234");
+        InsuredPerson lastName = person("PA2", "Mary", "John", "Mary@1234");
+        InsuredPerson prefix = person("PA3", "Johnny", "Doe", "Johnny@1234");
+        when(repository.searchByPolicyNumberOrNameOrUserId("John", "John%"))
+                .thenReturn(Arrays.asList(prefix, lastName, exact));
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("John");
+
+        assertFalse(result.isPolicyMatch());
+        assertEquals(List.of(exact), result.getPersons());
+    }
+
+    @Test
+    void testSearch_MatchesRegardlessOfCase() {
+        // what MySQL's case-insensitive collation returns for "john"
+        InsuredPerson exact = person("PA1", "John", "Smith", "John@1234");
+        InsuredPerson prefix = person("PA3", "Johnny", "Doe", "Johnny@1234");
+        when(repository.searchByPolicyNumberOrNameOrUserId("john", "john%"))
+                .thenReturn(Arrays.asList(prefix, exact));
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("john");
+
+        assertEquals(List.of(exact), result.getPersons());
+    }
+
+    @Test
+    void testSearch_PrefixAndEmailRegardlessOfCase() {
+        InsuredPerson prefix = person("PA3", "Johnny", "Doe", "Johnny@1234");
+        when(repository.searchByPolicyNumberOrNameOrUserId("JOH", "JOH%")).thenReturn(List.of(prefix));
+        InsuredPerson byEmail = person("PA1", "John", "Doe", "John@1234");
+        byEmail.setEmail("John.Doe@Gmail.com");
+        when(repository.searchByPolicyNumberOrEmail("john.doe@gmail.com")).thenReturn(List.of(byEmail));
+
+        assertEquals(List.of(prefix), searchService.search("JOH").getPersons());
+        assertEquals(List.of(byEmail), searchService.search("john.doe@gmail.com").getPersons());
+    }
+
+    @Test
+    void testSearch_PolicyNumberRegardlessOfCase() {
+        InsuredPerson byPolicy = person("PA123456", "John", "Doe", "John@1234");
+        when(repository.searchByPolicyNumberOrNameOrUserId("pa123456", "pa123456%")).thenReturn(List.of(byPolicy));
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("pa123456");
+
+        assertTrue(result.isPolicyMatch());
+        assertEquals(List.of(byPolicy), result.getPersons());
+    }
+
+    @Test
+    void testSearch_EscapesLikeWildcards() {
+        when(repository.searchByPolicyNumberOrNameOrUserId("Jo_n%", "Jo!_n!%%")).thenReturn(Collections.emptyList());
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("Jo_n%");
+
+        assertTrue(result.isEmpty());
+        verify(repository).searchByPolicyNumberOrNameOrUserId("Jo_n%", "Jo!_n!%%");
+    }
+
+    @Test
+    void testSearch_EmailUsesSingleQuery() {
+        InsuredPerson byEmail = person("PA1", "John", "Doe", "John@1234");
+        byEmail.setEmail("john@gmail.com");
+        when(repository.searchByPolicyNumberOrEmail("john@gmail.com")).thenReturn(List.of(byEmail));
+
+        InsuredPersonSearchService.SearchResult result = searchService.search("john@gmail.com");
+
+        assertEquals(List.of(byEmail), result.getPersons());
+        verify(repository).searchByPolicyNumberOrEmail("john@gmail.com");
+        verifyNoMoreInteractions(repository);
+    }
+}
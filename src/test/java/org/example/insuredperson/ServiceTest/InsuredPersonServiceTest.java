@@ -1,33 +1,56 @@
 package org.example.insuredperson.ServiceTest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.DTO.APIResponse;
+import org.example.insuredperson.DTO.CursorPage;
 import org.example.insuredperson.DTO.InsuredPersonRequest;
 import org.example.insuredperson.DTO.LoginRequest;
+import org.example.insuredperson.DTO.ResetPasswordRequest;
 import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Entity.ProfilePicture;
 import org.example.insuredperson.Exception.CustomExceptions;
 import org.example.insuredperson.Repo.DocumentRepository;
 import org.example.insuredperson.Repo.InsuredPersonRepository;
+import org.example.insuredperson.Repo.ProfilePictureRepository;
+import org.example.insuredperson.Service.CacheInvalidationBus;
+import org.example.insuredperson.Service.ContentHash;
+import org.example.insuredperson.Service.DocumentBlobFallback;
+import org.example.insuredperson.Service.DocumentStorage;
+import org.example.insuredperson.Service.DocumentStorageSweeper;
+import org.example.insuredperson.Service.InsuredPersonJsonCache;
 import org.example.insuredperson.Service.InsuredPersonService;
 import org.example.insuredperson.Service.JwtService;
+import org.example.insuredperson.Service.MailOutbox;
+import org.example.insuredperson.Service.MailTemplates;
+import org.example.insuredperson.Service.OtpStore;
+import org.example.insuredperson.Service.PasswordHashingService;
 import org.example.insuredperson.Service.ValidationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class InsuredPersonServiceTest {
 
-    @InjectMocks
+    // built in setUp: @InjectMocks can't supply the MeterRegistry
     private InsuredPersonService insuredPersonService;
 
     @Mock
@@ -36,6 +59,18 @@ public class InsuredPersonServiceTest {
     @Mock
     private DocumentRepository documentRepository;
 
+    @Mock
+    private ProfilePictureRepository profilePictureRepository;
+
+    @Mock
+    private DocumentStorage documentStorage;
+
+    @Mock
+    private DocumentBlobFallback documentBlobs;
+
+    @Mock
+    private DocumentStorageSweeper documentSweeper;
+
     @Mock
     private JwtService jwtService;
 
@@ -43,10 +78,19 @@ public class InsuredPersonServiceTest {
     private ValidationService validationService;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private OtpStore otpStore;
 
     @Mock
-    private JavaMailSender mailSender;
+    private MailOutbox mailOutbox;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @BeforeEach
     void setUp() {
@@ -54,14 +98,19 @@ public class InsuredPersonServiceTest {
         insuredPersonService = new InsuredPersonService(
                 repository,
                 documentRepository,
+                profilePictureRepository,
+                documentStorage,
+                documentBlobs,
+                documentSweeper,
                 jwtService,
                 validationService,
-                passwordEncoder
+                passwordHashingService,
+                otpStore,
+                mailOutbox,
+                invalidationBus,
+                transactionManager,
+                new SimpleMeterRegistry()
         );
-
-        // Inject mailSender manually if it's not in the constructor
-        ReflectionTestUtils.setField(insuredPersonService, "mailSender", mailSender);
-        ReflectionTestUtils.setField(insuredPersonService, "fromEmail", "noreply@example.com"); // Or mock value
     }
 
     @Test
@@ -77,15 +126,12 @@ public class InsuredPersonServiceTest {
 
         when(repository.existsById("PA123456")).thenReturn(false);
         when(repository.existsByUserId("User@123")).thenReturn(false);
-        when(passwordEncoder.encode("Strong@123")).thenReturn("encodedPassword");
+        when(passwordHashingService.encode("Strong@123")).thenReturn("encodedPassword");
 
         InsuredPerson savedPerson = new InsuredPerson();
         savedPerson.setPolicyNumber("PA123456");
         when(repository.save(any(InsuredPerson.class))).thenReturn(savedPerson);
 
-        //don't try to send an email...
-        doNothing().when(mailSender).send((SimpleMailMessage) any());
-
         // Act
         InsuredPerson result = insuredPersonService.createInsuredPerson(request);
 
@@ -114,7 +160,7 @@ public class InsuredPersonServiceTest {
         person.setPassword(encodedPassword);
 
         when(repository.findByUserId(userId)).thenReturn(person);
-        when(passwordEncoder.matches(password, encodedPassword)).thenReturn(true);
+        when(passwordHashingService.matches(password, encodedPassword)).thenReturn(true);
 
         //Act
         InsuredPerson result  = insuredPersonService.login(loginRequest);
@@ -122,7 +168,7 @@ public class InsuredPersonServiceTest {
         assertNotNull(result);
         assertEquals(userId, result.getUserId());
         verify(repository).findByUserId(userId);
-        verify(passwordEncoder).matches(password, encodedPassword);
+        verify(passwordHashingService).matches(password, encodedPassword);
     }
 
     @Test
@@ -140,7 +186,7 @@ public class InsuredPersonServiceTest {
         user.setPassword("encodedPassword");
 
         when(repository.findByUserId(userId)).thenReturn(user);
-        when(passwordEncoder.matches(password, user.getPassword())).thenReturn(false);
+        when(passwordHashingService.matches(password, user.getPassword())).thenReturn(false);
 
         // Act & Assert
         CustomExceptions.UnauthorizedException exception = assertThrows(
@@ -150,7 +196,7 @@ public class InsuredPersonServiceTest {
 
         assertEquals("Invalid credentials!!! Please try again.", exception.getMessage());
         verify(repository).findByUserId(userId);
-        verify(passwordEncoder).matches(password, user.getPassword());
+        verify(passwordHashingService).matches(password, user.getPassword());
     }
 
     @Test
@@ -212,6 +258,34 @@ public class InsuredPersonServiceTest {
         verify(repository).findAll(PageRequest.of(offSet,pageSize));
     }
 
+    @Test
+    void testGetInsuredListAfterCursor_ReturnsNextCursor(){
+        InsuredPerson person1 = new InsuredPerson();
+        person1.setPolicyNumber("PA1001");
+        InsuredPerson person2 = new InsuredPerson();
+        person2.setPolicyNumber("PA1002");
+        InsuredPerson person3 = new InsuredPerson();
+        person3.setPolicyNumber("PA1003");
+
+        when(repository.findAllByOrderByPolicyNumberAsc(Limit.of(3))).thenReturn(Arrays.asList(person1, person2, person3));
+
+        CursorPage<InsuredPerson> firstPage = insuredPersonService.getInsuredListAfter("", 2);
+
+        assertEquals(2, firstPage.getContent().size());
+        assertTrue(firstPage.isHasNext());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(repository.findByPolicyNumberGreaterThanOrderByPolicyNumberAsc("PA1002", Limit.of(3)))
+                .thenReturn(Collections.singletonList(person3));
+
+        CursorPage<InsuredPerson> secondPage = insuredPersonService.getInsuredListAfter(firstPage.getNextCursor(), 2);
+
+        assertEquals("PA1003", secondPage.getContent().get(0).getPolicyNumber());
+        assertFalse(secondPage.isHasNext());
+        assertNull(secondPage.getNextCursor());
+        verify(repository, never()).count();
+    }
+
     @Test
     void testFinByPolicyNumber_Success(){
         String policyNumber = "PA3432343";
@@ -236,6 +310,56 @@ public class InsuredPersonServiceTest {
         verify(repository).findById(policyNumber);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindById_ReadAfterInvalidationDoesNotJoinOlderLoad() throws Exception {
+        CacheInvalidationBus bus = mock(CacheInvalidationBus.class);
+        InsuredPersonJsonCache responseCache = new InsuredPersonJsonCache(new ObjectMapper(), bus, new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(10));
+        ArgumentCaptor<Consumer<Collection<String>>> invalidation = ArgumentCaptor.forClass(Consumer.class);
+        verify(bus).subscribe(eq(CacheInvalidationBus.INSURED_PERSON), invalidation.capture());
+
+        InsuredPerson before = new InsuredPerson();
+        before.setPolicyNumber("PA123456");
+        before.setFirstName("Before");
+        InsuredPerson after = new InsuredPerson();
+        after.setPolicyNumber("PA123456");
+        after.setFirstName("After");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findById("PA123456"))
+                .thenAnswer(inv -> {
+                    loading.countDown();
+                    release.await();
+                    return Optional.of(before);
+                })
+                .thenReturn(Optional.of(after));
+
+        ExecutorService readers = Executors.newFixedThreadPool(2);
+        try {
+            // request A misses, reads the version and starts loading the person as it was before the write
+            long versionA = responseCache.version();
+            Future<InsuredPerson> readA = readers.submit(() -> insuredPersonService.findById("PA123456", versionA));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // the write commits and invalidates; request B misses while A's load is still running
+            invalidation.getValue().accept(List.of("PA123456"));
+            long versionB = responseCache.version();
+            Future<InsuredPerson> readB = readers.submit(() -> insuredPersonService.findById("PA123456", versionB));
+            Thread.sleep(100);
+            release.countDown();
+
+            responseCache.put("PA123456", versionB, new APIResponse<>(200, "ok", readB.get(5, TimeUnit.SECONDS).getFirstName()));
+            responseCache.put("PA123456", versionA, new APIResponse<>(200, "ok", readA.get(5, TimeUnit.SECONDS).getFirstName()));
+        } finally {
+            readers.shutdownNow();
+        }
+
+        assertEquals("{\"status\":200,\"message\":\"ok\",\"data\":\"After\"}",
+                new String(responseCache.get("PA123456"), StandardCharsets.UTF_8));
+        verify(repository, times(2)).findById("PA123456");
+    }
+
     @Test
     void testFindByFirstName_Success(){
         String firstName = "Chandramouli";
@@ -414,12 +538,18 @@ public class InsuredPersonServiceTest {
         MockMultipartFile mockFile = new MockMultipartFile(
                 "profilePicture", "photo.jpg", "image/jpeg", profilePictureBytes);
 
-        when(repository.findById(policyNumber)).thenReturn(Optional.of(insuredPerson));
-        when(repository.save(any(InsuredPerson.class))).thenReturn(insuredPerson);
+        when(repository.existsById(policyNumber)).thenReturn(true);
         insuredPersonService.saveProfilePicture(policyNumber, mockFile);
-        assertArrayEquals(profilePictureBytes, insuredPerson.getProfilePicture());
-        verify(repository).findById(policyNumber);
-        verify(repository).save(insuredPerson);
+
+        ArgumentCaptor<ProfilePicture> saved = ArgumentCaptor.forClass(ProfilePicture.class);
+        verify(profilePictureRepository).save(saved.capture());
+        assertEquals(policyNumber, saved.getValue().getPolicyNumber());
+        assertEquals("image/jpeg", saved.getValue().getContentType());
+        assertArrayEquals(profilePictureBytes, saved.getValue().getData());
+        assertEquals(ContentHash.sha256Hex(profilePictureBytes), saved.getValue().getChecksum());
+        assertEquals((long) profilePictureBytes.length, saved.getValue().getSize());
+        verify(repository).existsById(policyNumber);
+        verify(repository, never()).save(any());
     }
 
     @Test
@@ -429,13 +559,14 @@ public class InsuredPersonServiceTest {
         byte[] profilePictureBytes = "fake-image-bytes".getBytes();
         MockMultipartFile mockFile = new MockMultipartFile(
                 "profilePicture", "photo.jpg", "image/jpeg", profilePictureBytes);
-        when(repository.findById(policyNumber)).thenReturn(Optional.empty());
+        when(repository.existsById(policyNumber)).thenReturn(false);
         RuntimeException exception = assertThrows(RuntimeException.class, ()->{
             insuredPersonService.saveProfilePicture(policyNumber, mockFile);
         });
 
         assertEquals("Policy number not found", exception.getMessage());
-        verify(repository).findById(policyNumber);
+        verify(repository).existsById(policyNumber);
+        verify(profilePictureRepository, never()).save(any());
     }
 
     @Test
@@ -453,7 +584,6 @@ public class InsuredPersonServiceTest {
         when(repository.findById(policyNumber)).thenReturn(Optional.of(existingUser));
         when(repository.findByUserId("NewUser@123")).thenReturn(null);
         when(repository.save(any(InsuredPerson.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        doNothing().when(mailSender).send(any(SimpleMailMessage.class));
         InsuredPerson updated = insuredPersonService.updateInsuredPerson(policyNumber, dto);
         assertNotNull(updated);
         assertEquals("John", updated.getFirstName());
@@ -464,7 +594,10 @@ public class InsuredPersonServiceTest {
         verify(repository).findById(policyNumber);
         verify(repository).findByUserId("NewUser@123");
         verify(repository).save(any(InsuredPerson.class));
-        verify(mailSender).send(any(SimpleMailMessage.class));
+        verify(mailOutbox).enqueue(eq("john@example.com"), isNull(), eq(MailTemplates.DETAILS_UPDATED), anyMap());
+        verify(invalidationBus).publish(CacheInvalidationBus.INSURED_PERSON, policyNumber);
+        // peers evict the old userId's natural-id entry, not the whole region
+        verify(invalidationBus).publish(CacheInvalidationBus.INSURED_PERSON_USER_ID, "OldUser@123");
     }
 
     @Test
@@ -514,21 +647,28 @@ public class InsuredPersonServiceTest {
     @Test
     void testDeleteInsuredPerson_ByExistingPolicyNumber() {
         String policyNumber = "PA2324334";
-        when(repository.existsById(policyNumber)).thenReturn(true);
+        InsuredPerson existingUser = new InsuredPerson();
+        existingUser.setPolicyNumber(policyNumber);
+        existingUser.setUserId("Gone@123");
+        when(repository.findById(policyNumber)).thenReturn(Optional.of(existingUser));
         doNothing().when(repository).deleteById(policyNumber);
+        when(documentRepository.findChecksumsByPolicyNumber(policyNumber)).thenReturn(List.of("a".repeat(64)));
         insuredPersonService.deleteInsuredPerson(policyNumber);
-        verify(repository).existsById(policyNumber);
+        verify(repository).findById(policyNumber);
         verify(repository).deleteById(policyNumber);
+        verify(documentSweeper).deleteUnreferencedAfterCommit(List.of("a".repeat(64)));
+        verify(invalidationBus).publish(CacheInvalidationBus.INSURED_PERSON, policyNumber);
+        verify(invalidationBus).publish(CacheInvalidationBus.INSURED_PERSON_USER_ID, "Gone@123");
     }
 
     @Test
     void testDeleteInsuredPerson_WithoutExistingPolicyNumber() {
         String policyNumber = "PA00000";
-        when(repository.existsById(policyNumber)).thenReturn(false);
+        when(repository.findById(policyNumber)).thenReturn(Optional.empty());
         CustomExceptions.ResourceNotFoundException exception = assertThrows(CustomExceptions.ResourceNotFoundException.class,
                 ()->{insuredPersonService.deleteInsuredPerson(policyNumber);});
         assertEquals("InsuredPerson not found with policyNumber: "+policyNumber, exception.getMessage());
-        verify(repository).existsById(policyNumber);
+        verify(repository).findById(policyNumber);
         verify(repository, never()).deleteById(policyNumber);
     }
 
@@ -540,13 +680,29 @@ public class InsuredPersonServiceTest {
         user.setEmail("test@gmail.com");
 
         when(repository.findByUserId(userId)).thenReturn(user);
-        doNothing().when(mailSender).send(any(SimpleMailMessage.class));
+        when(otpStore.issue(eq("password-reset"), eq(userId), any())).thenReturn("123456");
 
         String result = insuredPersonService.forgotPassword(userId);
 
         assertTrue(result.contains("Reset OTP sent successfully"));
         verify(repository).findByUserId(userId);
-        verify(mailSender).send(any(SimpleMailMessage.class));
+        verify(mailOutbox).enqueue(eq("test@gmail.com"), isNull(), eq(MailTemplates.PASSWORD_RESET), eq(Map.of("firstName", "", "otp", "123456")), eq(Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void testForgotPassword_MailInPreferredLanguage() {
+        String userId = "TestUser@123";
+        InsuredPerson user = new InsuredPerson();
+        user.setUserId(userId);
+        user.setEmail("test@gmail.com");
+        user.setPreferredLanguage("de");
+
+        when(repository.findByUserId(userId)).thenReturn(user);
+        when(otpStore.issue(eq("password-reset"), eq(userId), any())).thenReturn("123456");
+
+        insuredPersonService.forgotPassword(userId);
+
+        verify(mailOutbox).enqueue(eq("test@gmail.com"), eq(Locale.GERMAN), eq(MailTemplates.PASSWORD_RESET), anyMap(), any());
     }
 
     @Test
@@ -561,6 +717,46 @@ public class InsuredPersonServiceTest {
         verify(repository).findByUserId(userId);
     }
 
+    @Test
+    void testResetPassword_OtpAlreadyUsed() {
+        InsuredPerson user = new InsuredPerson();
+        user.setUserId("TestUser@123");
+        ResetPasswordRequest request = new ResetPasswordRequest();
+        request.setUserId("TestUser@123");
+        request.setOtp("123456");
+        request.setNewPassword("Strong@123");
+        request.setConfirmNewPassword("Strong@123");
+
+        when(otpStore.matches("password-reset", "TestUser@123", "123456")).thenReturn(true);
+        when(repository.findByUserId("TestUser@123")).thenReturn(user);
+        when(otpStore.consume("password-reset", "TestUser@123", "123456")).thenReturn(false);
+
+        CustomExceptions.UnauthorizedException exception = assertThrows(CustomExceptions.UnauthorizedException.class,
+                () -> insuredPersonService.resetPassword(request));
+
+        assertEquals("Invalid or expired OTP", exception.getMessage());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testResetPassword_OtpOfAnotherUserRejected() {
+        ResetPasswordRequest request = new ResetPasswordRequest();
+        request.setUserId("Victim@123");
+        request.setOtp("123456");
+        request.setNewPassword("Strong@123");
+        request.setConfirmNewPassword("Strong@123");
+
+        // 123456 was issued to someone else, so it does not match the victim's code
+        when(otpStore.matches("password-reset", "Victim@123", "123456")).thenReturn(false);
+
+        CustomExceptions.UnauthorizedException exception = assertThrows(CustomExceptions.UnauthorizedException.class,
+                () -> insuredPersonService.resetPassword(request));
+
+        assertEquals("Invalid or expired OTP", exception.getMessage());
+        verify(otpStore, never()).consume(any(), any(), any());
+        verify(repository, never()).save(any());
+    }
+
 }
 
 
@@ -0,0 +1,78 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.Entity.InsuredPerson;
+import org.example.insuredperson.Security.JwtPrincipal;
+import org.example.insuredperson.Service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "an-hs256-test-secret-of-at-least-32-bytes".getBytes());
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtService = new JwtService(SECRET, 100, meterRegistry);
+    }
+
+    private static InsuredPerson person() {
+        InsuredPerson person = new InsuredPerson();
+        person.setPolicyNumber("PA123456");
+        person.setUserId("John@1234");
+        person.setRole("Admin");
+        return person;
+    }
+
+    @Test
+    void testAuthenticate_ReturnsClaims() {
+        String token = jwtService.generateToken(person());
+
+        JwtPrincipal principal = jwtService.authenticate(token);
+
+        assertNotNull(principal);
+        assertEquals("PA123456", principal.getPolicyNumber());
+        assertEquals("John@1234", principal.getUserId());
+        assertTrue(principal.isAdmin());
+        assertNotNull(principal.getExpiresAt());
+    }
+
+    @Test
+    void testAuthenticate_TamperedToken() {
+        String token = jwtService.generateToken(person());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(jwtService.authenticate(tampered));
+    }
+
+    @Test
+    void testAuthenticate_OtherKey() {
+        JwtService other = new JwtService(Base64.getEncoder().encodeToString(
+                "a-different-hs256-secret-of-32-plus-bytes".getBytes()), 100, new SimpleMeterRegistry());
+
+        assertNull(jwtService.authenticate(other.generateToken(person())));
+    }
+
+    @Test
+    void testAuthenticate_CachesVerifiedToken() {
+        String token = jwtService.generateToken(person());
+
+        JwtPrincipal first = jwtService.authenticate(token);
+        JwtPrincipal second = jwtService.authenticate(token);
+
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.verified-tokens").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.verified-tokens").tag("result", "miss")
+                .functionCounter().count());
+    }
+}
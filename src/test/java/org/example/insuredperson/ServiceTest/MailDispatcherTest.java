@@ -0,0 +1,125 @@
+package org.example.insuredperson.ServiceTest;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import org.example.insuredperson.Entity.OutboxMail;
+import org.example.insuredperson.Repo.OutboxMailRepository;
+import org.example.insuredperson.Service.MailDispatcher;
+import org.example.insuredperson.Service.SmtpMailDelivery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class MailDispatcherTest {
+
+    @Mock
+    private OutboxMailRepository repository;
+    @Mock
+    private SmtpMailDelivery delivery;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(delivery.createMimeMessage()).thenAnswer(inv -> new MimeMessage((Session) null));
+        dispatcher = new MailDispatcher(repository, delivery, transactionManager, "noreply@example.com",
+                20, 3, Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofDays(7));
+    }
+
+    private OutboxMail pending(long id) {
+        OutboxMail mail = new OutboxMail("john@example.com", "Subject", "Body");
+        ReflectionTestUtils.setField(mail, "id", id);
+        return mail;
+    }
+
+    @Test
+    void testDispatch_SendsAndDeletes() {
+        OutboxMail mail = pending(1L);
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(OutboxMail.Status.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(mail));
+
+        when(delivery.send(anyList())).thenReturn(Collections.singletonList(null));
+
+        dispatcher.dispatch();
+
+        verify(delivery).send(argThat(messages -> messages.size() == 1));
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+        assertEquals(1, mail.getAttempts());
+    }
+
+    @Test
+    void testDispatch_FailureBacksOff() {
+        OutboxMail mail = pending(2L);
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(OutboxMail.Status.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(mail));
+        when(delivery.send(anyList())).thenReturn(List.of(new MessagingException("connection refused")));
+
+        Instant before = Instant.now();
+        dispatcher.dispatch();
+
+        verify(repository, never()).deleteAllByIdInBatch(any());
+        verify(repository).save(mail);
+        assertEquals(OutboxMail.Status.PENDING, mail.getStatus());
+        assertEquals("connection refused", mail.getLastError());
+        assertFalse(mail.getNextAttemptAt().isBefore(before.plusSeconds(30)));
+    }
+
+    @Test
+    void testDispatch_GivesUpAfterMaxAttempts() {
+        OutboxMail mail = pending(3L);
+        mail.setAttempts(2);
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(OutboxMail.Status.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(mail));
+        when(delivery.send(anyList())).thenReturn(List.of(new MessagingException("mailbox unavailable")));
+
+        dispatcher.dispatch();
+
+        assertEquals(3, mail.getAttempts());
+        assertEquals(OutboxMail.Status.FAILED, mail.getStatus());
+        assertEquals("", mail.getBody());
+        assertEquals("mailbox unavailable", mail.getLastError());
+        verify(repository).save(mail);
+    }
+
+    @Test
+    void testDispatch_ExpiredMailDroppedUnsent() {
+        OutboxMail expired = new OutboxMail("john@example.com", "Reset", "Your code is 123456", Instant.now().minusSeconds(1));
+        ReflectionTestUtils.setField(expired, "id", 4L);
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(OutboxMail.Status.PENDING), any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of(expired));
+
+        dispatcher.dispatch();
+
+        verify(repository).delete(expired);
+        verify(delivery, never()).send(anyList());
+        assertEquals(0, expired.getAttempts());
+    }
+
+    @Test
+    void testPurge_RemovesExpiredAndOldFailed() {
+        Instant before = Instant.now();
+
+        dispatcher.purge();
+
+        verify(repository).deleteExpired(argThat(now -> !now.isBefore(before)));
+        verify(repository).deleteByStatusCreatedBefore(eq(OutboxMail.Status.FAILED),
+                argThat(cutoff -> !cutoff.isAfter(Instant.now().minus(Duration.ofDays(7)))));
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Service.MailTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MailTemplatesTest {
+
+    private MailTemplates mailTemplates;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mailTemplates = new MailTemplates("classpath:templates/mail/", "en", "https://portal.example.com");
+    }
+
+    @Test
+    void testRender_PasswordReset() {
+        MailTemplates.Message message = mailTemplates.render(MailTemplates.PASSWORD_RESET,
+                Map.of("firstName", "John", "otp", "042133"));
+
+        assertEquals("Password Reset OTP", message.getSubject());
+        assertEquals("Hello John.\n\nAs you requested for resetting the password, Here is your reset OTP: 042133"
+                + "\n\n\n\nThanks,\nSpringBoot Operations team.", message.getBody());
+    }
+
+    @Test
+    void testRender_ConstantsFoldedIn() {
+        MailTemplates.Message message = mailTemplates.render(MailTemplates.WELCOME,
+                Map.of("firstName", "John", "userId", "John@123"));
+
+        assertTrue(message.getBody().contains("Username: John@123\n"));
+        assertTrue(message.getBody().contains("https://portal.example.com/forgot-password"));
+    }
+
+    @Test
+    void testRender_LocalizedVariantWithFallback() {
+        Map<String, String> variables = Map.of("firstName", "Anna", "otp", "123456");
+
+        assertTrue(mailTemplates.render(MailTemplates.PASSWORD_RESET, Locale.GERMANY, variables).getBody().startsWith("Hallo Anna,"));
+        assertEquals("Password Reset OTP", mailTemplates.render(MailTemplates.PASSWORD_RESET, Locale.FRENCH, variables).getSubject());
+    }
+
+    @Test
+    void testRender_NoPreferenceUsesDefaultLocale() throws IOException {
+        Map<String, String> variables = Map.of("firstName", "Anna", "otp", "123456");
+
+        assertEquals("Password Reset OTP", mailTemplates.render(MailTemplates.PASSWORD_RESET, null, variables).getSubject());
+
+        MailTemplates german = new MailTemplates("classpath:templates/mail/", "de", "https://portal.example.com");
+        assertTrue(german.render(MailTemplates.PASSWORD_RESET, null, variables).getBody().startsWith("Hallo Anna,"));
+        assertTrue(german.render(MailTemplates.PASSWORD_RESET, variables).getBody().startsWith("Hallo Anna,"));
+    }
+
+    @Test
+    void testRender_MissingVariable() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> mailTemplates.render(MailTemplates.PASSWORD_RESET, Map.of("firstName", "John")));
+
+        assertEquals("Missing mail template variable: otp", exception.getMessage());
+    }
+
+    @Test
+    void testRender_UnknownTemplate() {
+        assertThrows(IllegalArgumentException.class, () -> mailTemplates.render("no-such-template", Map.of()));
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.Service.OffHeapByteCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapByteCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OffHeapByteCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // two slabs of two 16-byte blocks: room for four blocks in total
+        cache = new OffHeapByteCache(meterRegistry, DataSize.ofBytes(64), DataSize.ofBytes(32),
+                DataSize.ofBytes(16), DataSize.ofBytes(64));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String read(String key, String version) throws IOException {
+        try (OffHeapByteCache.Handle handle = cache.acquire(key, version)) {
+            if (handle == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            handle.writeTo(out);
+            assertEquals(handle.getLength(), out.size());
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testPut_RoundTripAcrossBlocks() throws IOException {
+        String content = "a picture that spans three blocks";
+        assertTrue(cache.put("PA123456", "hash-1", "image/png", bytes(content)));
+
+        try (OffHeapByteCache.Handle handle = cache.acquire("PA123456", "hash-1")) {
+            assertNotNull(handle);
+            assertEquals("image/png", handle.getContentType());
+        }
+        assertEquals(content, read("PA123456", "hash-1"));
+        assertEquals(content.length(), cache.usedBytes());
+        assertEquals(2, meterRegistry.get("offheap.cache.gets").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void testAcquire_OtherVersionIsMissAndDropsEntry() throws IOException {
+        cache.put("PA123456", "hash-1", "image/png", bytes("old picture"));
+
+        assertNull(read("PA123456", "hash-2"));
+        assertNull(read("PA123456", "hash-1"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.usedBytes());
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() throws IOException {
+        cache.put("PA1", "v", "image/png", bytes("first picture, two blocks"));
+        cache.put("PA2", "v", "image/png", bytes("second picture, two blocks"));
+        read("PA1", "v");
+
+        assertTrue(cache.put("PA3", "v", "image/png", bytes("third picture, two blocks")));
+
+        assertEquals("first picture, two blocks", read("PA1", "v"));
+        assertNull(read("PA2", "v"));
+        assertEquals("third picture, two blocks", read("PA3", "v"));
+        assertEquals(64, cache.allocatedBytes());
+        assertEquals(1, meterRegistry.get("offheap.cache.evictions").counter().count());
+    }
+
+    @Test
+    void testPut_PinnedEntryIsNotOverwritten() throws IOException {
+        cache.put("PA1", "v", "image/png", bytes("first picture, two blocks"));
+        cache.put("PA2", "v", "image/png", bytes("second picture, two blocks"));
+
+        try (OffHeapByteCache.Handle pinned = cache.acquire("PA1", "v")) {
+            cache.invalidate("PA1");
+            // evicting PA2 frees two blocks; PA1's stay reserved while it is being written
+            assertTrue(cache.put("PA3", "v", "image/png", bytes("third picture, two blocks")));
+            assertFalse(cache.put("PA4", "v", "image/png", bytes("a fourth picture that needs three blocks")));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            pinned.writeTo(out);
+            assertEquals("first picture, two blocks", out.toString(StandardCharsets.UTF_8));
+        }
+
+        // released on close, so the next put finds the blocks free
+        assertTrue(cache.put("PA4", "v", "image/png", bytes("a fourth picture that needs three blocks")));
+    }
+
+    @Test
+    void testPut_TooLargeIsNotCached() {
+        assertFalse(cache.put("PA1", "v", "image/png", new byte[65]));
+        assertEquals(0, cache.size());
+    }
+}
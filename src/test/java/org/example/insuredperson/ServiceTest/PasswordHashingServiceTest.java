@@ -0,0 +1,116 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Service.PasswordHashingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PasswordHashingServiceTest {
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingService hashingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        // one thread, one queue slot: the third concurrent request has nowhere to go
+        hashingService = new PasswordHashingService(passwordEncoder, meterRegistry, 1, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingService.shutdown();
+    }
+
+    @Test
+    void testMatchesAndEncode_DelegateToEncoder() {
+        when(passwordEncoder.matches("Strong@123", "hash")).thenReturn(true);
+        when(passwordEncoder.encode("Strong@123")).thenReturn("hash");
+
+        assertTrue(hashingService.matches("Strong@123", "hash"));
+        assertEquals("hash", hashingService.encode("Strong@123"));
+        assertEquals(2, meterRegistry.get("password.hashing.duration").timer().count());
+    }
+
+    @Test
+    void testSaturatedPool_RejectsWith503() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(any(), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> hashingService.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashingService.matches("b", "hash"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(CustomExceptions.ServiceUnavailableException.class, () -> hashingService.matches("c", "hash"));
+        assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testEncodeAll_WaitsForRoomInsteadOf503() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(any(), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+        when(passwordEncoder.encode(any())).thenAnswer(inv -> "hash-" + inv.getArgument(0));
+
+        // a sign-in holds the only thread and a second one fills the queue
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> hashingService.matches("a", "hash"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> hashingService.matches("b", "hash"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<List<String>> batch = CompletableFuture.supplyAsync(() -> hashingService.encodeAll(List.of("x", "y", "z")));
+        Thread.sleep(100);
+        assertFalse(batch.isDone());
+
+        release.countDown();
+        assertEquals(List.of("hash-x", "hash-y", "hash-z"), batch.get(5, TimeUnit.SECONDS));
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.get("password.hashing.rejected").counter().count());
+    }
+
+    @Test
+    void testEncoderFailure_Propagates() {
+        when(passwordEncoder.encode("x")).thenThrow(new IllegalArgumentException("bad input"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> hashingService.encode("x"));
+
+        assertEquals("bad input", exception.getMessage());
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Service.RateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // login per user: 3 requests per 30 seconds, i.e. one token every 10 seconds
+        rateLimiter = new RateLimiter(true, "20/PT1M", "3/PT30S", "5/PT15M", "3/PT15M", "10/PT15M", "5/PT15M", "0");
+    }
+
+    @Test
+    void testBurstThenRefill() {
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now));
+        }
+
+        long wait = rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now);
+        assertEquals(10 * SECOND, wait);
+        assertEquals(10, RateLimiter.retryAfterSeconds(wait));
+
+        // one token back after the interval, not the whole burst
+        assertEquals(0, rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now + 10 * SECOND));
+        assertTrue(rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now + 10 * SECOND) > 0);
+    }
+
+    @Test
+    void testKeysAndRulesAreIndependent() {
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now);
+        }
+
+        assertEquals(0, rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "jane", now));
+        assertEquals(0, rateLimiter.tryAcquire(RateLimiter.FORGOT_PASSWORD_USER, "john", now));
+    }
+
+    @Test
+    void testDisabledRule_AlwaysAllows() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(RateLimiter.REGISTER_IP, "10.0.0.1", 0));
+        }
+        assertEquals(0, rateLimiter.size());
+    }
+
+    @Test
+    void testCheck_Throws429WithRetryAfter() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.check(RateLimiter.LOGIN_USER, "john");
+        }
+
+        CustomExceptions.TooManyRequestsException exception = assertThrows(CustomExceptions.TooManyRequestsException.class,
+                () -> rateLimiter.check(RateLimiter.LOGIN_USER, "john"));
+
+        assertTrue(exception.getRetryAfterSeconds() >= 1 && exception.getRetryAfterSeconds() <= 10);
+    }
+
+    @Test
+    void testEvictIdle_DropsRefilledBuckets() {
+        long now = 1_000 * SECOND;
+        rateLimiter.tryAcquire(RateLimiter.LOGIN_USER, "john", now);
+        rateLimiter.tryAcquire(RateLimiter.LOGIN_IP, "10.0.0.1", now);
+        assertEquals(2, rateLimiter.size());
+
+        rateLimiter.evictIdle(now + 5 * SECOND);
+        assertEquals(1, rateLimiter.size());   // login per-ip refills every 3s, per-user every 10s
+
+        rateLimiter.evictIdle(now + 10 * SECOND);
+        assertEquals(0, rateLimiter.size());
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Entity.RefreshToken;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Repo.RefreshTokenRepository;
+import org.example.insuredperson.Service.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository repository;
+
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        refreshTokenService = new RefreshTokenService(repository, Duration.ofDays(7));
+    }
+
+    private RefreshToken issued(String rawToken, boolean used, Instant expiresAt) {
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository, atLeastOnce()).save(saved.capture());
+        RefreshToken token = new RefreshToken(saved.getValue().getTokenHash(), saved.getValue().getFamilyId(), "PA123456", expiresAt);
+        ReflectionTestUtils.setField(token, "id", 1L);
+        ReflectionTestUtils.setField(token, "used", used);
+        when(repository.findByTokenHash(token.getTokenHash())).thenReturn(Optional.of(token));
+        return token;
+    }
+
+    @Test
+    void testRotate_IssuesSuccessorInSameFamily() {
+        String rawToken = refreshTokenService.issue("PA123456");
+        RefreshToken current = issued(rawToken, false, Instant.now().plusSeconds(60));
+        when(repository.markUsed(1L)).thenReturn(1);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(rawToken);
+
+        assertEquals("PA123456", rotation.getPolicyNumber());
+        assertNotEquals(rawToken, rotation.getRefreshToken());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository, times(2)).save(saved.capture());
+        assertEquals(current.getFamilyId(), saved.getValue().getFamilyId());
+        verify(repository, never()).deleteByFamily(anyString());
+    }
+
+    @Test
+    void testRotate_ReuseRevokesFamily() {
+        String rawToken = refreshTokenService.issue("PA123456");
+        RefreshToken current = issued(rawToken, true, Instant.now().plusSeconds(60));
+
+        CustomExceptions.UnauthorizedException exception = assertThrows(CustomExceptions.UnauthorizedException.class,
+                () -> refreshTokenService.rotate(rawToken));
+
+        assertEquals("Refresh token already used, please log in again", exception.getMessage());
+        verify(repository).deleteByFamily(current.getFamilyId());
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void testRotate_ConcurrentUseLosesRace() {
+        String rawToken = refreshTokenService.issue("PA123456");
+        RefreshToken current = issued(rawToken, false, Instant.now().plusSeconds(60));
+        when(repository.markUsed(1L)).thenReturn(0);
+
+        assertThrows(CustomExceptions.UnauthorizedException.class, () -> refreshTokenService.rotate(rawToken));
+        verify(repository).deleteByFamily(current.getFamilyId());
+    }
+
+    @Test
+    void testRotate_Expired() {
+        String rawToken = refreshTokenService.issue("PA123456");
+        issued(rawToken, false, Instant.now().minusSeconds(1));
+
+        assertThrows(CustomExceptions.UnauthorizedException.class, () -> refreshTokenService.rotate(rawToken));
+        verify(repository, never()).markUsed(any());
+    }
+
+    @Test
+    void testRotate_UnknownToken() {
+        when(repository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(CustomExceptions.UnauthorizedException.class, () -> refreshTokenService.rotate("not-a-token"));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.insuredperson.ServiceTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.insuredperson.Exception.CustomExceptions;
+import org.example.insuredperson.Service.SingleFlight;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> flight;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        flight = new SingleFlight<>("test", meterRegistry);
+    }
+
+    private double calls(String result) {
+        return meterRegistry.get("singleflight.calls").tag("name", "test").tag("result", result).counter().count();
+    }
+
+    @Test
+    void testLoad_ConcurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> leader = pool.submit(() -> flight.load("PA123456", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "John";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(pool.submit(() -> flight.load("PA123456", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // followers are parked on the leader's load before it is allowed to finish
+            while (calls("coalesced") < 3) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals("John", leader.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("John", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(1, calls("load"));
+            assertEquals(0, flight.inFlight());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLoad_FailureReachesWaitersAndIsNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.load("PA404", () -> {
+                loading.countDown();
+                await(release);
+                throw new CustomExceptions.ResourceNotFoundException("InsuredPerson not found with policyNumber: PA404");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> follower = pool.submit(() -> flight.load("PA404", () -> "unexpected"));
+            while (calls("coalesced") < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception followerFailure = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(CustomExceptions.ResourceNotFoundException.class, leaderFailure.getCause());
+            assertInstanceOf(CustomExceptions.ResourceNotFoundException.class, followerFailure.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the next call loads again rather than replaying the failure
+        assertEquals("found", flight.load("PA404", () -> "found"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
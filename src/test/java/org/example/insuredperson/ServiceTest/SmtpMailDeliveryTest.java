@@ -0,0 +1,94 @@
+package org.example.insuredperson.ServiceTest;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.example.insuredperson.Service.SmtpMailDelivery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpMailDeliveryTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private SimpleMeterRegistry meterRegistry;
+    private SmtpMailDelivery delivery;
+
+    @BeforeEach
+    void setUp() throws MessagingException {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        meterRegistry = new SimpleMeterRegistry();
+        delivery = new SmtpMailDelivery(mailSender, meterRegistry, 2, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        delivery.shutdown();
+    }
+
+    private List<MimeMessage> messages(int count) throws MessagingException {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MimeMessage message = delivery.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+            helper.setFrom("noreply@example.com");
+            helper.setTo("user" + i + "@example.com");
+            helper.setSubject("Message " + i);
+            helper.setText("Body " + i);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    @Test
+    void testSend_ReusesPooledSessions() throws MessagingException {
+        List<Exception> first = delivery.send(messages(6));
+        List<Exception> second = delivery.send(messages(6));
+
+        assertTrue(first.stream().allMatch(e -> e == null));
+        assertTrue(second.stream().allMatch(e -> e == null));
+        assertTrue(greenMail.waitForIncomingEmail(5000, 12));
+        assertEquals(12, greenMail.getReceivedMessages().length);
+        // twelve messages, two sessions: the handshake ran once per session, not per message
+        assertEquals(2.0, meterRegistry.get("mail.smtp.connects").counter().count());
+        assertEquals(12.0, meterRegistry.get("mail.smtp.sent").counter().count());
+    }
+
+    @Test
+    void testSend_ReconnectsAfterServerDropsSession() throws Exception {
+        assertNull(delivery.send(messages(1)).get(0));
+
+        greenMail.stop();
+        greenMail.start();
+
+        assertNull(delivery.send(messages(1)).get(0));
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+    }
+
+    @Test
+    void testSend_ReportsFailurePerMessage() throws MessagingException {
+        greenMail.stop();
+
+        List<Exception> results = delivery.send(messages(2));
+
+        assertEquals(2, results.size());
+        assertNotNull(results.get(0));
+        assertNotNull(results.get(1));
+        assertEquals(2.0, meterRegistry.get("mail.smtp.failed").counter().count());
+    }
+}
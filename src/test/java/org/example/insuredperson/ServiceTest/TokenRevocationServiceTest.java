@@ -0,0 +1,77 @@
+package org.example.insuredperson.ServiceTest;
+
+import org.example.insuredperson.Service.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRevocationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = tempDir.resolve("revoked-tokens.log");
+        revocationService = new TokenRevocationService(file.toString(), 1000, 0.01);
+    }
+
+    @Test
+    void testRevoke_OnlyTheRevokedToken() throws IOException {
+        revocationService.revoke("jti-1", Instant.now().plusSeconds(300));
+
+        assertTrue(revocationService.isRevoked("jti-1"));
+        assertFalse(revocationService.isRevoked("jti-2"));
+        assertFalse(revocationService.isRevoked(null));
+    }
+
+    @Test
+    void testNoFalseNegatives() throws IOException {
+        Instant exp = Instant.now().plusSeconds(300);
+        for (int i = 0; i < 2000; i++) {
+            revocationService.revoke("jti-" + i, exp);
+        }
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(revocationService.isRevoked("jti-" + i));
+        }
+        for (int i = 0; i < 2000; i++) {
+            assertFalse(revocationService.isRevoked(UUID.randomUUID().toString()));
+        }
+    }
+
+    @Test
+    void testRevocationsSurviveRestart() throws IOException {
+        revocationService.revoke("jti-1", Instant.now().plusSeconds(300));
+
+        TokenRevocationService restarted = new TokenRevocationService(file.toString(), 1000, 0.01);
+
+        assertTrue(restarted.isRevoked("jti-1"));
+    }
+
+    @Test
+    void testRestart_DropsExpiredEntries() throws IOException {
+        revocationService.revoke("jti-live", Instant.now().plusSeconds(300));
+        Files.writeString(file, "jti-expired " + (Instant.now().getEpochSecond() - 1) + "\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        TokenRevocationService restarted = new TokenRevocationService(file.toString(), 1000, 0.01);
+
+        assertEquals(1, restarted.size());
+        assertTrue(restarted.isRevoked("jti-live"));
+        assertFalse(restarted.isRevoked("jti-expired"));
+        assertFalse(Files.readString(file).contains("jti-expired"));
+    }
+}